@@ -3,6 +3,7 @@ package lk.uomcse.fs;
 import lk.uomcse.fs.model.*;
 import lk.uomcse.fs.entity.BootstrapServer;
 import lk.uomcse.fs.entity.Node;
+import lk.uomcse.fs.udp.TransportConfig;
 import lk.uomcse.fs.utils.FrameUtils;
 import lk.uomcse.fs.utils.ListUtils;
 import lk.uomcse.fs.view.MainUI;
@@ -24,7 +25,7 @@ public class FalconFS {
 
     private Node self;
 
-    private List<String> filenames;
+    private FileIndex filenames;
 
     private List<Node> neighbours;
 
@@ -51,11 +52,24 @@ public class FalconFS {
      * @param bs   a bootstrap server entity
      */
     public FalconFS(String name, String ip, int port, BootstrapServer bs) {
+        this(name, ip, port, bs, TransportConfig.defaults());
+    }
+
+    /**
+     * Imports file system requirements
+     *
+     * @param name      name of this file server
+     * @param ip        designated ip of this node
+     * @param port      assigned port of this node
+     * @param bs        a bootstrap server entity
+     * @param transport configurations of the udp layer
+     */
+    public FalconFS(String name, String ip, int port, BootstrapServer bs, TransportConfig transport) {
         this.name = name;
         this.self = new Node(ip, port);
         this.neighbours = new ArrayList<>();
-        this.filenames = new ArrayList<>();
-        this.handler = new RequestHandler(port);
+        this.filenames = new FileIndex();
+        this.handler = new RequestHandler(port, transport);
         // Services {
         this.joinService = new JoinService(handler, self, neighbours);
         this.bootstrapService = new BootstrapService(handler, joinService, bs, name, self);
@@ -63,7 +77,7 @@ public class FalconFS {
         // Heartbeat services
         this.heartbeatService = new HeartbeatService(handler, neighbours);
         this.pulseReceiverService = new PulseReceiverService(handler, neighbours);
-        this.healthMonitorService = new HealthMonitorService(neighbours);
+        this.healthMonitorService = new HealthMonitorService(neighbours, queryService::forget);
         // }
     }
 
@@ -174,7 +188,8 @@ public class FalconFS {
             return;
         }
         BootstrapServer bc = new BootstrapServer(props.getProperty("bs.ip"), Integer.parseInt(props.getProperty("bs.port")));
-        FalconFS fs = new FalconFS(props.getProperty("fs.name"), props.getProperty("fs.ip"), Integer.parseInt(props.getProperty("fs.port")), bc);
+        TransportConfig transport = TransportConfig.fromProperties(props);
+        FalconFS fs = new FalconFS(props.getProperty("fs.name"), props.getProperty("fs.ip"), Integer.parseInt(props.getProperty("fs.port")), bc, transport);
         String filesStr = props.getProperty("files");
         List<String> files = Arrays.asList(filesStr.trim().toLowerCase().split(","));
         fs.getFilenames().addAll(ListUtils.randomSubList(files, 4, 2));
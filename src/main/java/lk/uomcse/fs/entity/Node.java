@@ -1,8 +1,9 @@
 package lk.uomcse.fs.entity;
 
+import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Node implements Comparator<Node>, Comparable<Node> {
     private String ip;
@@ -20,12 +21,21 @@ public class Node implements Comparator<Node>, Comparable<Node> {
     public Node(String ip, int port) {
         this.ip = ip;
         this.port = port;
-        Random rand = new Random();
-
-        this.health = rand.nextInt(100) + 1;
+        this.health = ThreadLocalRandom.current().nextInt(100) + 1;
         this.pulseResponses = new ArrayList<Long>();
     }
 
+    /**
+     * Creates a node of a socket address. Nodes of the same address are equal.
+     * The ip is taken literally from the address, hence no name resolution takes place.
+     *
+     * @param address socket address of the node
+     * @return node of the address
+     */
+    public static Node of(InetSocketAddress address) {
+        return new Node(address.getHostString(), address.getPort());
+    }
+
     public String getIp() {
         return ip;
     }
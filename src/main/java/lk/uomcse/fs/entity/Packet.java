@@ -1,41 +1,168 @@
 package lk.uomcse.fs.entity;
 
+import lk.uomcse.fs.messages.BinaryCodec;
+import lk.uomcse.fs.utils.BufferPool;
+import lk.uomcse.fs.utils.FramingUtils;
+
 import java.net.DatagramPacket;
-import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * @author Dulanjaya
  * @since 10/23/2017
  */
 public class Packet {
-    private DatagramPacket packet;
+    private ByteBuffer data;
+    private BufferPool pool;
+    private Packet parent;
+    private int references;
+    private final InetSocketAddress source;
     private long receivedTime;
     private Node receiverNode;
 
     public Packet(DatagramPacket packet) {
-        this.packet = packet;
+        this(ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength()).slice(),
+                (InetSocketAddress) packet.getSocketAddress(), null);
+    }
+
+    /**
+     * Creates a packet from received content
+     *
+     * @param data   received content, positioned at the start of the datagram
+     * @param source address the datagram was received from
+     * @param pool   pool to return {@code data} to once released (null if not pooled)
+     */
+    public Packet(ByteBuffer data, InetSocketAddress source, BufferPool pool) {
+        this.data = data;
+        this.pool = pool;
+        this.parent = null;
+        this.source = source;
         this.receivedTime = System.currentTimeMillis();
+    }
 
-        String ip = ((InetSocketAddress)packet.getSocketAddress()).getHostName();
-        int port = ((InetSocketAddress)packet.getSocketAddress()).getPort();
-        this.receiverNode = new Node(ip, port);
+    /**
+     * Creates a packet of a single message packed in the parent packet
+     *
+     * @param parent packet containing the message
+     * @param data   content of the message
+     */
+    private Packet(Packet parent, ByteBuffer data) {
+        this.data = data;
+        this.pool = null;
+        this.parent = parent;
+        this.source = parent.source;
+        this.receivedTime = parent.receivedTime;
+        this.receiverNode = parent.receiverNode;
     }
 
+    /**
+     * Splits messages packed back to back in this packet. Content of this packet is released once all the
+     * split packets are released.
+     *
+     * @return packets of each message or this packet if it contains a single message
+     */
+    public List<Packet> split() {
+        int count = FramingUtils.countFrames(data);
+        if (count == 1)
+            return Collections.singletonList(this);
+        List<Packet> packets = new ArrayList<>(count);
+        synchronized (this) {
+            references = count;
+        }
+        int index = data.position();
+        for (int i = 0; i < count; i++) {
+            int length = FramingUtils.readLength(data, index);
+            ByteBuffer frame = data.duplicate();
+            frame.position(index).limit(index + length);
+            packets.add(new Packet(this, frame.slice()));
+            index += length;
+        }
+        return packets;
+    }
 
-    public DatagramPacket getPacket() {
-        return packet;
+    /**
+     * Gets content of this packet. Content must not be read once the packet is released.
+     *
+     * @return received content from position to limit
+     */
+    public ByteBuffer getData() {
+        return data;
     }
 
     public long getReceivedTime() {
         return receivedTime;
     }
 
+    /**
+     * Gets content of this packet as text. Binary messages are converted to their text form.
+     *
+     * @return message as string
+     * @throws lk.uomcse.fs.utils.exceptions.InvalidFormatException if a binary message is malformed
+     */
     public String getMessage() {
-        return new String(packet.getData(), 0, packet.getLength());
+        if (BinaryCodec.isBinary(data))
+            return new String(BinaryCodec.decode(data), StandardCharsets.UTF_8);
+        return StandardCharsets.UTF_8.decode(data.duplicate()).toString();
+    }
+
+    /**
+     * Gets address the packet was received from
+     *
+     * @return source socket address (never reverse resolved)
+     */
+    public InetSocketAddress getSourceAddress() {
+        return source;
     }
 
+    /**
+     * Gets node the packet was received from. Node is created on first call.
+     *
+     * @return node with the literal ip and port of the source
+     */
     public Node getReceiverNode() {
+        if (this.receiverNode == null)
+            this.receiverNode = Node.of(source);
         return this.receiverNode;
     }
+
+    /**
+     * Copies content of this packet out of its pooled buffer and releases the buffer, hence the packet can be kept
+     * for long without holding a buffer of the pool
+     */
+    public synchronized void detach() {
+        if (data == null || (pool == null && parent == null))
+            return;
+        ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+        copy.put(data.duplicate()).flip();
+        release();
+        this.data = copy;
+        this.pool = null;
+        this.parent = null;
+    }
+
+    /**
+     * Returns the content buffer to its pool if pooled
+     */
+    public synchronized void release() {
+        if (data == null)
+            return;
+        if (parent != null)
+            parent.releaseReference();
+        else if (pool != null)
+            pool.release(data);
+        data = null;
+    }
+
+    /**
+     * Releases content of this packet once every packet split from it is released
+     */
+    private synchronized void releaseReference() {
+        if (--references == 0)
+            release();
+    }
 }
@@ -0,0 +1,430 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.utils.FramingUtils;
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of messages exchanged between peers that agreed on it once joined (see {@link BinaryRequest}).
+ * <p>
+ * A binary message starts with {@link #MAGIC} (text messages start with a digit of the length prefix), followed by
+ * an interned message type code and the fields of the message: strings and counts are prefixed by varint lengths,
+ * numbers are varints, IPv4 addresses take 4 bytes and ports 2 bytes.
+ * <p>
+ * Messages write their binary form straight from their fields ({@link IMessage#encodeBinary()}) and views read
+ * fields straight from received binary messages ({@link MessageView}). Messages without a schema (join, bootstrap
+ * messages, ...) are always sent as text.
+ */
+public class BinaryCodec {
+    public static final byte MAGIC = (byte) 0xFB;
+
+    private static final int MAX_TEXT_LENGTH = 9999;
+
+    private enum Field {
+        // Single token
+        STRING,
+        // Non negative integer
+        NUMBER,
+        // Dotted IPv4 address
+        IPV4,
+        // Port number
+        PORT,
+        // Several tokens kept as one string (ex: a file name with spaces)
+        SPAN,
+        // Tokens of a list, prefixed by their count
+        LIST,
+        // Single token which may be absent, written as an empty string when absent
+        OPTIONAL
+    }
+
+    private static final Map<String, Schema> SCHEMAS = new HashMap<>();
+
+    private static final Schema[] CODES = new Schema[256];
+
+    static {
+        register(1, SearchRequest.ID, Field.STRING, Field.IPV4, Field.PORT, Field.SPAN, Field.NUMBER, Field.OPTIONAL);
+        register(2, SearchResponse.ID, Field.STRING, Field.NUMBER, Field.IPV4, Field.PORT, Field.NUMBER, Field.LIST);
+        register(3, HeartbeatPulse.ID);
+        register(4, WalkRequest.ID, Field.STRING, Field.IPV4, Field.PORT, Field.SPAN, Field.NUMBER);
+        register(5, SearchCancel.ID, Field.STRING, Field.IPV4, Field.PORT, Field.NUMBER);
+        register(6, WalkCheck.ID, Field.STRING, Field.IPV4, Field.PORT);
+        register(7, WalkCheckResponse.ID, Field.STRING, Field.NUMBER);
+    }
+
+    /**
+     * Registers binary schema of a message type
+     *
+     * @param code   type code sent instead of the message id
+     * @param id     message id
+     * @param fields fields of the message following the id
+     */
+    private static void register(int code, String id, Field... fields) {
+        Schema schema = new Schema((byte) code, id, fields);
+        SCHEMAS.put(id, schema);
+        CODES[code] = schema;
+    }
+
+    /**
+     * Whether the content is a binary message
+     *
+     * @param data content from position to limit
+     * @return whether content starts with the binary marker
+     */
+    public static boolean isBinary(ByteBuffer data) {
+        return data.hasRemaining() && data.get(data.position()) == MAGIC;
+    }
+
+    /**
+     * Gets message id of a binary message
+     *
+     * @param data binary message from position to limit
+     * @return message id or null if the type code is unknown
+     */
+    public static String idOf(ByteBuffer data) {
+        if (data.remaining() < 2)
+            return null;
+        Schema schema = CODES[data.get(data.position() + 1) & 0xFF];
+        return schema == null ? null : schema.id;
+    }
+
+    /**
+     * Starts writing a binary message. Fields must be written in the order of the text form.
+     *
+     * @param id message id
+     * @return writer of the fields of the message
+     */
+    public static Writer writer(String id) {
+        Schema schema = SCHEMAS.get(id);
+        if (schema == null)
+            throw new IllegalArgumentException(String.format("No binary form for message id: %s", id));
+        return new Writer(schema);
+    }
+
+    /**
+     * Splits a binary message into the tokens of its text form. A span is a single token and numbers are kept as
+     * values instead of positions in the message.
+     *
+     * @param data binary message from position to limit
+     * @param view view to add the tokens to
+     * @return whether the message is a valid binary message
+     */
+    static boolean tokenize(ByteBuffer data, MessageView view) {
+        ByteBuffer in = data.duplicate();
+        if (in.remaining() < 2 || in.get() != MAGIC)
+            return false;
+        Schema schema = CODES[in.get() & 0xFF];
+        if (schema == null)
+            return false;
+        try {
+            view.addNumber(data.remaining());
+            view.addId(schema.id);
+            for (Field field : schema.fields) {
+                switch (field) {
+                    case STRING:
+                    case SPAN:
+                    case OPTIONAL:
+                        addString(in, view);
+                        break;
+                    case NUMBER:
+                        view.addNumber(readVarint(in));
+                        break;
+                    case IPV4:
+                        view.addAddress(in.getInt());
+                        break;
+                    case PORT:
+                        view.addNumber(in.getShort() & 0xFFFF);
+                        break;
+                    case LIST:
+                        int count = readVarint(in);
+                        for (int i = 0; i < count; i++)
+                            addString(in, view);
+                        break;
+                }
+            }
+            return !in.hasRemaining();
+        } catch (BufferUnderflowException | InvalidFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Converts a binary message to text, for consumers parsing messages from strings
+     *
+     * @param data binary message from position to limit
+     * @return text message
+     */
+    public static byte[] decode(ByteBuffer data) {
+        ByteBuffer in = data.duplicate();
+        if (in.remaining() < 2 || in.get() != MAGIC)
+            throw new InvalidFormatException("Decoding failed due to not having the binary marker.");
+        Schema schema = CODES[in.get() & 0xFF];
+        if (schema == null)
+            throw new InvalidFormatException("Decoding failed due to having an unknown message type.");
+        try {
+            StringBuilder sb = new StringBuilder(" ").append(schema.id);
+            for (Field field : schema.fields) {
+                switch (field) {
+                    case STRING:
+                    case SPAN:
+                        sb.append(' ').append(readString(in));
+                        break;
+                    case OPTIONAL:
+                        String value = readString(in);
+                        if (!value.isEmpty())
+                            sb.append(' ').append(value);
+                        break;
+                    case NUMBER:
+                        sb.append(' ').append(readVarint(in));
+                        break;
+                    case IPV4:
+                        sb.append(' ').append(formatIpv4(in.getInt()));
+                        break;
+                    case PORT:
+                        sb.append(' ').append(in.getShort() & 0xFFFF);
+                        break;
+                    case LIST:
+                        int count = readVarint(in);
+                        for (int i = 0; i < count; i++)
+                            sb.append(' ').append(readString(in));
+                        break;
+                }
+            }
+            byte[] body = sb.toString().getBytes(StandardCharsets.UTF_8);
+            int length = body.length + FramingUtils.LENGTH_DIGITS;
+            if (length > MAX_TEXT_LENGTH)
+                throw new InvalidFormatException("Decoding failed due to message being too long for the text form.");
+            byte[] text = new byte[length];
+            for (int i = FramingUtils.LENGTH_DIGITS - 1, value = length; i >= 0; i--, value /= 10)
+                text[i] = (byte) ('0' + value % 10);
+            System.arraycopy(body, 0, text, FramingUtils.LENGTH_DIGITS, body.length);
+            return text;
+        } catch (BufferUnderflowException e) {
+            throw new InvalidFormatException("Decoding failed due to not having enough content to match the format.", e);
+        }
+    }
+
+    /**
+     * Formats an IPv4 address read from a binary message
+     *
+     * @param address address as a big endian int
+     * @return dotted address
+     */
+    static String formatIpv4(int address) {
+        return (address >>> 24) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    // Empty strings have no token, as in the text form (ex: an absent optional token)
+    private static void addString(ByteBuffer in, MessageView view) {
+        int length = readVarint(in);
+        if (length > in.remaining())
+            throw new InvalidFormatException("Decoding failed due to not having enough content to match the format.");
+        if (length > 0)
+            view.addToken(in.position(), in.position() + length);
+        in.position(in.position() + length);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new InvalidFormatException("Decoding failed due to a malformed varint.");
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length > in.remaining())
+            throw new InvalidFormatException("Decoding failed due to not having enough content to match the format.");
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        String[] parts = ip.split("\\.");
+        if (parts.length != 4)
+            return null;
+        byte[] address = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            if (parts[i].isEmpty() || parts[i].length() > 3 || !parts[i].chars().allMatch(Character::isDigit))
+                return null;
+            int value = Integer.parseInt(parts[i]);
+            if (value > 255)
+                return null;
+            address[i] = (byte) value;
+        }
+        return address;
+    }
+
+    private static class Schema {
+        private final byte code;
+
+        private final String id;
+
+        private final Field[] fields;
+
+        private Schema(byte code, String id, Field[] fields) {
+            this.code = code;
+            this.id = id;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Writes fields of a message in the order of its schema
+     */
+    public static class Writer {
+        private final Schema schema;
+
+        private final ByteArrayOutputStream out;
+
+        private int field;
+
+        // Set once a value has no binary form (ex: a host name instead of an IPv4 address)
+        private boolean failed;
+
+        private Writer(Schema schema) {
+            this.schema = schema;
+            this.out = new ByteArrayOutputStream(64);
+            out.write(MAGIC);
+            out.write(schema.code);
+        }
+
+        /**
+         * Writes a single token or a span of tokens
+         *
+         * @param value value of the field
+         * @return this writer
+         */
+        public Writer string(String value) {
+            Field next = next();
+            if (next != Field.STRING && next != Field.SPAN)
+                throw mismatch(Field.STRING);
+            writeString(out, value);
+            return this;
+        }
+
+        /**
+         * Writes a token which may be absent
+         *
+         * @param value value of the field or null if absent
+         * @return this writer
+         */
+        public Writer optional(String value) {
+            if (next() != Field.OPTIONAL)
+                throw mismatch(Field.OPTIONAL);
+            writeString(out, value == null ? "" : value);
+            return this;
+        }
+
+        /**
+         * Writes a non negative integer
+         *
+         * @param value value of the field
+         * @return this writer
+         */
+        public Writer number(int value) {
+            if (next() != Field.NUMBER)
+                throw mismatch(Field.NUMBER);
+            if (value < 0)
+                failed = true;
+            writeVarint(out, value);
+            return this;
+        }
+
+        /**
+         * Writes an IPv4 address
+         *
+         * @param ip dotted address
+         * @return this writer
+         */
+        public Writer address(String ip) {
+            if (next() != Field.IPV4)
+                throw mismatch(Field.IPV4);
+            byte[] address = parseIpv4(ip);
+            if (address == null) {
+                failed = true;
+                return this;
+            }
+            out.write(address, 0, address.length);
+            return this;
+        }
+
+        /**
+         * Writes a port number
+         *
+         * @param port port
+         * @return this writer
+         */
+        public Writer port(int port) {
+            if (next() != Field.PORT)
+                throw mismatch(Field.PORT);
+            if (port < 0 || port > 0xFFFF)
+                failed = true;
+            out.write(port >> 8);
+            out.write(port);
+            return this;
+        }
+
+        /**
+         * Writes a list of tokens
+         *
+         * @param values tokens
+         * @return this writer
+         */
+        public Writer list(List<String> values) {
+            if (next() != Field.LIST)
+                throw mismatch(Field.LIST);
+            writeVarint(out, values.size());
+            for (String value : values)
+                writeString(out, value);
+            return this;
+        }
+
+        /**
+         * Gets the written message
+         *
+         * @return binary message or null if a field has no binary form, hence the message must be sent as text
+         */
+        public byte[] toByteArray() {
+            if (field != schema.fields.length)
+                throw new IllegalStateException(String.format("Missing fields of message id: %s", schema.id));
+            return failed ? null : out.toByteArray();
+        }
+
+        private Field next() {
+            if (field == schema.fields.length)
+                throw new IllegalStateException(String.format("Too many fields for message id: %s", schema.id));
+            return schema.fields[field++];
+        }
+
+        private IllegalStateException mismatch(Field written) {
+            return new IllegalStateException(String.format("Field %d of message id %s is not %s",
+                    field - 1, schema.id, written));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package lk.uomcse.fs.messages;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Offers binary encoding (see {@link BinaryCodec}) to a node once joined. Nodes not knowing the message never reply,
+ * hence the offering node keeps sending them text.
+ * (length BIN)
+ */
+public class BinaryRequest implements IRequest {
+    public static final String ID = "BIN";
+
+    // Offer has no content, hence it is encoded once for all offers
+    private static final String MESSAGE = format();
+
+    private static final byte[] ENCODED = MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+    @Override
+    public String toString() {
+        return MESSAGE;
+    }
+
+    @Override
+    public byte[] encode() {
+        return ENCODED;
+    }
+
+    private static String format() {
+        StringBuilder sb = new StringBuilder(" ").append(ID);
+        String length = String.format("%04d", sb.length() + 4);
+        sb.insert(0, length);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
+
+// length BINOK value
+public class BinaryResponse implements IResponse {
+    public static final String ID = "BINOK";
+
+    // True: binary encoding accepted; False: keep text
+    private boolean success;
+
+    /**
+     * Constructor
+     *
+     * @param success whether binary encoding is accepted
+     */
+    public BinaryResponse(boolean success) {
+        this.success = success;
+    }
+
+    /**
+     * Returns whether binary encoding is accepted
+     *
+     * @return whether binary encoding is accepted
+     */
+    @Override
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Parses binary encoding response
+     *
+     * @param reply reply in string
+     * @return binary encoding response message
+     */
+    public static BinaryResponse parse(String reply) {
+        if (reply == null)
+            throw new NullPointerException();
+        String[] response = reply.trim().split(" +");
+        if (response.length != 3)
+            throw new InvalidFormatException("Parsing failed due to not having enough content to match the format.");
+        if (!response[1].equals(ID))
+            throw new InvalidFormatException(String.format("Parsing failed due to not having message id: %s. (Received message ID: %s)", ID, response[1]));
+        return new BinaryResponse(response[2].equals("0"));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(" ");
+        sb.append(ID).append(" ")
+                .append(success ? "0" : "9999");
+        String length = String.format("%04d", sb.length() + 4);
+        sb.insert(0, length);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,29 @@
+package lk.uomcse.fs.messages;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A message already encoded for the network, ex: a received message rewritten for forwarding
+ */
+public class EncodedMessage implements IMessage {
+    private final byte[] encoded;
+
+    /**
+     * Creates message of encoded content
+     *
+     * @param encoded encoded message including the length prefix
+     */
+    public EncodedMessage(byte[] encoded) {
+        this.encoded = encoded;
+    }
+
+    @Override
+    public byte[] encode() {
+        return encoded;
+    }
+
+    @Override
+    public String toString() {
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+}
@@ -2,6 +2,8 @@ package lk.uomcse.fs.messages;
 
 import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Describes the Heartbeat Message Format {@code {@link HeartbeatPulse}}.
  *
@@ -11,8 +13,29 @@ import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
 public class HeartbeatPulse implements IMessage {
     public static final String ID = "HBPULSE";
 
+    // Pulse has no content, hence it is encoded once for all pulses
+    private static final String MESSAGE = format();
+
+    private static final byte[] ENCODED = MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] BINARY = BinaryCodec.writer(ID).toByteArray();
+
     @Override
     public String toString() {
+        return MESSAGE;
+    }
+
+    @Override
+    public byte[] encode() {
+        return ENCODED;
+    }
+
+    @Override
+    public byte[] encodeBinary() {
+        return BINARY;
+    }
+
+    private static String format() {
         StringBuilder sb = new StringBuilder(" HBPULSE");
         String length = String.format("%04d", sb.length() + 4);
         sb.insert(0, length);
@@ -0,0 +1,15 @@
+package lk.uomcse.fs.messages;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flyweight view of a received heartbeat pulse (length HBPULSE)
+ */
+public class HeartbeatPulseView extends MessageView {
+    private static final byte[] ID = HeartbeatPulse.ID.getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    protected boolean isValid() {
+        return tokenCount() == 2 && tokenEquals(1, ID);
+    }
+}
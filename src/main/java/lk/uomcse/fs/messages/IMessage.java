@@ -1,5 +1,7 @@
 package lk.uomcse.fs.messages;
 
+import java.nio.charset.StandardCharsets;
+
 public interface IMessage {
     /**
      * Returns string representation of the message according to standards provided
@@ -7,4 +9,23 @@ public interface IMessage {
      * @return string representation of this request
      */
     String toString();
+
+    /**
+     * Returns the message encoded as it is sent over the network.
+     * Immutable messages may encode once and return the same array.
+     *
+     * @return encoded message (must not be modified)
+     */
+    default byte[] encode() {
+        return toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the message in the binary form sent to peers agreed on it (see {@link BinaryCodec}).
+     *
+     * @return encoded message or null if the message is sent as text only
+     */
+    default byte[] encodeBinary() {
+        return null;
+    }
 }
@@ -0,0 +1,331 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reusable read only view of a received message. Reads fields straight from the received bytes;
+ * a field is converted to a java object only when it is asked for.
+ * Binary messages (see {@link BinaryCodec}) are read with the same token indices as their text form, except that
+ * a span of tokens (ex: a file name with spaces) is a single token.
+ * A view is not thread safe and is valid only until the underlying packet is released.
+ */
+public abstract class MessageView {
+    private static final int INITIAL_TOKENS = 16;
+
+    // Kinds of tokens. Tokens of text messages are all raw; numbers and addresses of binary messages keep their value
+    // instead of their start.
+    private static final byte RAW = 0;
+
+    private static final byte NUMBER = 1;
+
+    private static final byte ADDRESS = 2;
+
+    private static final byte MESSAGE_ID = 3;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private ByteBuffer data;
+
+    private int[] starts = new int[INITIAL_TOKENS];
+
+    private int[] ends = new int[INITIAL_TOKENS];
+
+    private byte[] kinds = new byte[INITIAL_TOKENS];
+
+    private int count;
+
+    private boolean binary;
+
+    // Message id of a binary message
+    private String id;
+
+    /**
+     * Points this view to a message
+     *
+     * @param data content of the message from position to limit
+     * @return whether the message is a valid message of this view
+     */
+    public boolean wrap(ByteBuffer data) {
+        this.data = data;
+        this.count = 0;
+        this.binary = BinaryCodec.isBinary(data);
+        if (binary)
+            return BinaryCodec.tokenize(data, this) && isValid();
+        int limit = data.limit();
+        int index = data.position();
+        while (index < limit) {
+            while (index < limit && isSeparator(data.get(index)))
+                index++;
+            if (index == limit)
+                break;
+            int start = index;
+            while (index < limit && !isSeparator(data.get(index)))
+                index++;
+            addToken(start, index);
+        }
+        return isValid();
+    }
+
+    /**
+     * Whether the wrapped message has the format of this view
+     *
+     * @return validity of the message
+     */
+    protected abstract boolean isValid();
+
+    /**
+     * Whether the wrapped message is binary
+     *
+     * @return whether the message is binary
+     */
+    protected boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Gets number of space separated tokens of the message
+     *
+     * @return token count
+     */
+    protected int tokenCount() {
+        return count;
+    }
+
+    /**
+     * Gets the token as a string
+     *
+     * @param token index of the token
+     * @return token
+     */
+    protected String stringAt(int token) {
+        switch (kinds[token]) {
+            case NUMBER:
+                return Integer.toString(starts[token]);
+            case ADDRESS:
+                return BinaryCodec.formatIpv4(starts[token]);
+            case MESSAGE_ID:
+                return id;
+            default:
+                return decode(starts[token], ends[token]);
+        }
+    }
+
+    /**
+     * Gets tokens in given range with the separators between them as in the message
+     *
+     * @param from index of the first token
+     * @param to   index after the last token
+     * @return joined tokens
+     */
+    protected String stringBetween(int from, int to) {
+        if (from >= to)
+            return "";
+        if (binary) {
+            StringBuilder sb = new StringBuilder(stringAt(from));
+            for (int i = from + 1; i < to; i++)
+                sb.append(' ').append(stringAt(i));
+            return sb.toString();
+        }
+        return decode(starts[from], ends[to - 1]);
+    }
+
+    /**
+     * Parses the token as a non negative integer
+     *
+     * @param token index of the token
+     * @return value of the token
+     */
+    protected int intAt(int token) {
+        if (kinds[token] == NUMBER)
+            return starts[token];
+        if (kinds[token] != RAW)
+            throw new InvalidFormatException(String.format("Parsing failed due to not having a number at %d: %s", token, stringAt(token)));
+        int value = 0;
+        for (int i = starts[token]; i < ends[token]; i++) {
+            byte b = data.get(i);
+            if (b < '0' || b > '9')
+                throw new InvalidFormatException(String.format("Parsing failed due to not having a number at %d: %s", token, stringAt(token)));
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Compares the token with given ASCII bytes
+     *
+     * @param token index of the token
+     * @param value expected value
+     * @return whether the token equals the value
+     */
+    protected boolean tokenEquals(int token, byte[] value) {
+        if (kinds[token] != RAW) {
+            String literal = stringAt(token);
+            if (literal.length() != value.length)
+                return false;
+            for (int i = 0; i < value.length; i++) {
+                if (literal.charAt(i) != value[i])
+                    return false;
+            }
+            return true;
+        }
+        if (ends[token] - starts[token] != value.length)
+            return false;
+        for (int i = 0; i < value.length; i++) {
+            if (data.get(starts[token] + i) != value[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares the token with given string without decoding the token
+     *
+     * @param token index of the token
+     * @param value expected value (ASCII)
+     * @return whether the token equals the value
+     */
+    protected boolean tokenEquals(int token, String value) {
+        if (kinds[token] != RAW)
+            return stringAt(token).equals(value);
+        if (ends[token] - starts[token] != value.length())
+            return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (data.get(starts[token] + i) != value.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets number of raw bytes of the token
+     *
+     * @param token index of the token
+     * @return length of the token or -1 if the token is a number, address or id of a binary message
+     */
+    protected int tokenLength(int token) {
+        return kinds[token] == RAW ? ends[token] - starts[token] : -1;
+    }
+
+    /**
+     * Gets a raw byte of the token without decoding the token
+     *
+     * @param token index of the token
+     * @param index index of the byte within the token (less than {@link #tokenLength(int)})
+     * @return the byte
+     */
+    protected byte byteAt(int token, int index) {
+        return data.get(starts[token] + index);
+    }
+
+    /**
+     * Gets number of bytes from the start of a token to the start of another. Only for text messages.
+     *
+     * @param from index of the first token
+     * @param to   index of the token to stop before
+     * @return number of bytes
+     */
+    protected int lengthBetween(int from, int to) {
+        return starts[to] - starts[from];
+    }
+
+    /**
+     * Copies raw bytes of the message. Only for text messages.
+     *
+     * @param from  index of the first token to copy
+     * @param to    index of the token to stop before
+     * @param dest  destination array
+     * @param index index of the destination to copy to
+     * @return number of bytes copied
+     */
+    protected int copyBetween(int from, int to, byte[] dest, int index) {
+        int start = starts[from];
+        int end = starts[to];
+        for (int i = start; i < end; i++)
+            dest[index + i - start] = data.get(i);
+        return end - start;
+    }
+
+    /**
+     * Decodes whole message. Meant for logging.
+     *
+     * @return message as string
+     */
+    @Override
+    public String toString() {
+        if (data == null)
+            return "";
+        if (binary) {
+            try {
+                return new String(BinaryCodec.decode(data), StandardCharsets.UTF_8);
+            } catch (InvalidFormatException e) {
+                return "";
+            }
+        }
+        return StandardCharsets.UTF_8.decode(data.duplicate()).toString();
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++)
+            bytes[i - start] = data.get(i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Adds a token of raw bytes of the message
+     *
+     * @param start absolute index of the first byte of the token
+     * @param end   absolute index after the last byte of the token
+     */
+    void addToken(int start, int end) {
+        add(RAW, start, end);
+    }
+
+    /**
+     * Adds a number of a binary message
+     *
+     * @param value value of the number
+     */
+    void addNumber(int value) {
+        add(NUMBER, value, value);
+    }
+
+    /**
+     * Adds an IPv4 address of a binary message
+     *
+     * @param address address as a big endian int
+     */
+    void addAddress(int address) {
+        add(ADDRESS, address, address);
+    }
+
+    /**
+     * Adds the message id of a binary message
+     *
+     * @param id message id
+     */
+    void addId(String id) {
+        this.id = id;
+        add(MESSAGE_ID, 0, 0);
+    }
+
+    private void add(byte kind, int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            kinds = Arrays.copyOf(kinds, count * 2);
+        }
+        kinds[count] = kind;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\n' || b == '\r';
+    }
+}
@@ -0,0 +1,98 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.entity.Node;
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
+
+// length SERCNL qid IP port hops
+public class SearchCancel implements IRequest {
+    public static final String ID = "SERCNL";
+
+    private String queryId;
+
+    private Node node;
+
+    private int hops;
+
+    /**
+     * Constructor
+     *
+     * @param queryId id of the cancelled query
+     * @param node    origin of the query
+     * @param hops    number of hops the cancel took
+     */
+    public SearchCancel(String queryId, Node node, int hops) {
+        this.queryId = queryId;
+        this.node = node;
+        this.hops = hops;
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    /**
+     * IP:Port of the origin
+     *
+     * @return node representing origin
+     */
+    public Node getNode() {
+        return node;
+    }
+
+    public int getHops() {
+        return hops;
+    }
+
+    /**
+     * Creates the cancel for the next hop
+     *
+     * @return cancel with hops incremented
+     */
+    public SearchCancel next() {
+        return new SearchCancel(queryId, node, hops + 1);
+    }
+
+    /**
+     * Parses search cancel message
+     *
+     * @param msg message in string
+     * @return search cancel message
+     */
+    public static SearchCancel parse(String msg) {
+        if (msg == null)
+            throw new NullPointerException();
+        String[] request = msg.trim().split(" +");
+        if (request.length != 6)
+            throw new InvalidFormatException("Parsing failed due to not having correct word length.");
+        if (!request[1].equals(ID))
+            throw new InvalidFormatException(String.format("Parsing failed due to not having message id: %s. (Received message ID: %s)", ID, request[1]));
+        try {
+            return new SearchCancel(request[2], new Node(request[3], Integer.parseInt(request[4])), Integer.parseInt(request[5]));
+        } catch (NumberFormatException e) {
+            throw new InvalidFormatException("Parsing failed due to not having a number at port or hops.", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(" ");
+        sb.append(ID).append(" ")
+                .append(queryId).append(" ")
+                .append(node.getIp()).append(" ")
+                .append(node.getPort()).append(" ")
+                .append(hops);
+        String length = String.format("%04d", sb.length() + 4);
+        sb.insert(0, length);
+        return sb.toString();
+    }
+
+    @Override
+    public byte[] encodeBinary() {
+        return BinaryCodec.writer(ID)
+                .string(queryId)
+                .address(node.getIp())
+                .port(node.getPort())
+                .number(hops)
+                .toByteArray();
+    }
+}
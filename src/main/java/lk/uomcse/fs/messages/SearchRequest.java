@@ -3,7 +3,9 @@ package lk.uomcse.fs.messages;
 import lk.uomcse.fs.entity.Node;
 import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
 
-// length SER qid IP port file_name hops
+import java.util.Arrays;
+
+// length SER qid IP port file_name hops [visited]
 public class SearchRequest implements IRequest {
     public static final String ID = "SER";
 
@@ -15,6 +17,8 @@ public class SearchRequest implements IRequest {
 
     private int hops;
 
+    private VisitedSet visited;
+
     /**
      * Cstr of SearchRequest
      *
@@ -24,10 +28,24 @@ public class SearchRequest implements IRequest {
      * @param hops     current number of hops
      */
     public SearchRequest(String queryId, Node node, String filename, int hops) {
+        this(queryId, node, filename, hops, null);
+    }
+
+    /**
+     * Cstr of SearchRequest
+     *
+     * @param queryId  id of the query
+     * @param node     a node
+     * @param filename filename to search for
+     * @param hops     current number of hops
+     * @param visited  nodes not to send the request to or null
+     */
+    public SearchRequest(String queryId, Node node, String filename, int hops, VisitedSet visited) {
         this.queryId = queryId;
         this.node = node;
         this.filename = filename;
         this.hops = hops;
+        this.visited = visited;
     }
 
     /**
@@ -57,6 +75,15 @@ public class SearchRequest implements IRequest {
         return hops;
     }
 
+    /**
+     * Nodes the request passed through or was sent to (optional)
+     *
+     * @return visited set or null if the request carries none
+     */
+    public VisitedSet getVisited() {
+        return visited;
+    }
+
     /**
      * Query Id. All queries must have unique query id.
      *
@@ -90,13 +117,18 @@ public class SearchRequest implements IRequest {
         String qid = response[2];
         String ip = response[3];
         int port = Integer.parseInt(response[4]);
-        String filename = response[5];
-        int hops = Integer.parseInt(response[6]);
-        return new SearchRequest(qid, new Node(ip, port), filename, hops);
+        // Visited set follows hops so that parsers reading hops at a fixed position ignore it
+        int last = response.length - 1;
+        VisitedSet visited = null;
+        if (last > 6 && VisitedSet.isToken(response[last]))
+            visited = VisitedSet.parse(response[last--]);
+        String filename = String.join(" ", Arrays.copyOfRange(response, 5, last));
+        int hops = Integer.parseInt(response[last]);
+        return new SearchRequest(qid, new Node(ip, port), filename, hops, visited);
     }
 
     /**
-     * To string method (length SER IP port file_name hops)
+     * To string method (length SER qid IP port file_name hops [visited])
      *
      * @return a string representation
      */
@@ -109,10 +141,23 @@ public class SearchRequest implements IRequest {
                 .append(node.getPort()).append(" ")
                 .append(this.filename).append(" ")
                 .append(this.hops);
+        if (visited != null)
+            sb.append(" ").append(visited);
         String length = String.format("%04d", sb.length() + 4);
         sb.insert(0, length);
         return sb.toString();
     }
 
+    @Override
+    public byte[] encodeBinary() {
+        return BinaryCodec.writer(ID)
+                .string(queryId)
+                .address(node.getIp())
+                .port(node.getPort())
+                .string(filename)
+                .number(hops)
+                .optional(visited == null ? null : visited.toString())
+                .toByteArray();
+    }
 
 }
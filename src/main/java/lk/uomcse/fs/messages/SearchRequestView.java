@@ -0,0 +1,171 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.entity.Node;
+import lk.uomcse.fs.utils.FramingUtils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flyweight view of a received search request
+ * (length SER qid IP port file_name hops [visited])
+ */
+public class SearchRequestView extends MessageView {
+    private static final byte[] ID = SearchRequest.ID.getBytes(StandardCharsets.US_ASCII);
+
+    private static final int QUERY_ID = 2;
+
+    private static final int IP = 3;
+
+    private static final int PORT = 4;
+
+    private static final int FILENAME = 5;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    // Resolved once per message, as the visited set is optional
+    private boolean hasVisited;
+
+    private int hopsToken;
+
+    @Override
+    protected boolean isValid() {
+        if (tokenCount() < 7 || !tokenEquals(1, ID))
+            return false;
+        // Visited set follows hops, if any
+        hasVisited = tokenCount() > 7 && isVisitedToken(tokenCount() - 1);
+        hopsToken = hasVisited ? tokenCount() - 2 : tokenCount() - 1;
+        return true;
+    }
+
+    /**
+     * Query Id.
+     *
+     * @return query id
+     */
+    public String getQueryId() {
+        return stringAt(QUERY_ID);
+    }
+
+    /**
+     * IP of the requester
+     *
+     * @return ip
+     */
+    public String getIp() {
+        return stringAt(IP);
+    }
+
+    /**
+     * Port of the requester
+     *
+     * @return port
+     */
+    public int getPort() {
+        return intAt(PORT);
+    }
+
+    /**
+     * IP:Port of the requester
+     *
+     * @return node representing requester
+     */
+    public Node getNode() {
+        return new Node(getIp(), getPort());
+    }
+
+    /**
+     * File name being searched. Spaces in the file name are kept.
+     *
+     * @return search filename
+     */
+    public String getFilename() {
+        return stringBetween(FILENAME, hopsToken);
+    }
+
+    /**
+     * Nodes the request passed through or was sent to
+     *
+     * @return visited set or null if the request carries none
+     */
+    public VisitedSet getVisited() {
+        return hasVisited ? VisitedSet.parse(stringAt(tokenCount() - 1)) : null;
+    }
+
+    /**
+     * Hop count of the request
+     *
+     * @return a hop count
+     */
+    public int getHops() {
+        return intAt(hopsToken);
+    }
+
+    /**
+     * Creates the request to forward to other nodes, i.e. this request with hops incremented.
+     * A text request is copied byte by byte without parsing its fields, hence it is forwarded as text.
+     * A binary request is rebuilt from its fields, hence it is encoded for each peer.
+     *
+     * @return request to forward
+     */
+    public IMessage forward() {
+        if (isBinary())
+            return rebuild(getVisited());
+        return forward(hasVisited ? stringAt(tokenCount() - 1) : null);
+    }
+
+    /**
+     * Creates the request to forward to other nodes with hops incremented and given visited set
+     *
+     * @param visited nodes not to send the request to
+     * @return request to forward
+     */
+    public IMessage forward(VisitedSet visited) {
+        if (isBinary())
+            return rebuild(visited);
+        return forward(visited.toString());
+    }
+
+    private IMessage rebuild(VisitedSet visited) {
+        return new SearchRequest(getQueryId(), getNode(), getFilename(), getHops() + 1, visited);
+    }
+
+    private IMessage forward(String visited) {
+        int hops = getHops() + 1;
+        int digits = Integer.toString(hops).length();
+        byte[] token = visited == null ? null : visited.getBytes(StandardCharsets.US_ASCII);
+        // ID up to hops (the separator before hops included), followed by new hops and visited set
+        int length = FramingUtils.LENGTH_DIGITS + 1 + lengthBetween(1, hopsToken) + digits;
+        if (token != null)
+            length += 1 + token.length;
+        byte[] encoded = new byte[length];
+        writeDigits(encoded, 0, length, FramingUtils.LENGTH_DIGITS);
+        encoded[FramingUtils.LENGTH_DIGITS] = ' ';
+        int index = FramingUtils.LENGTH_DIGITS + 1;
+        index += copyBetween(1, hopsToken, encoded, index);
+        writeDigits(encoded, index, hops, digits);
+        index += digits;
+        if (token != null) {
+            encoded[index++] = ' ';
+            System.arraycopy(token, 0, encoded, index, token.length);
+        }
+        return new EncodedMessage(encoded);
+    }
+
+    // Checks the received bytes, as VisitedSet#isToken does for strings
+    private boolean isVisitedToken(int token) {
+        if (tokenLength(token) != VisitedSet.TOKEN_LENGTH || byteAt(token, 0) != VisitedSet.MARKER)
+            return false;
+        for (int i = 1; i < VisitedSet.TOKEN_LENGTH; i++) {
+            if (Character.digit((char) byteAt(token, i), 16) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static void writeDigits(byte[] dest, int index, int value, int digits) {
+        for (int i = index + digits - 1; i >= index; i--) {
+            dest[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
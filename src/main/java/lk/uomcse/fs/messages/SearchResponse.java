@@ -10,6 +10,9 @@ import java.util.List;
 public class SearchResponse implements IResponse {
     public static final String ID = "SEROK";
 
+    // File count of a response indicating failure due to some other error
+    public static final int ERROR = 9998;
+
     private String queryID;
 
     private int fileCount;
@@ -48,6 +51,16 @@ public class SearchResponse implements IResponse {
         return fileCount;
     }
 
+    /**
+     * Whether the response contains files
+     *
+     * @return whether the search was successful
+     */
+    @Override
+    public boolean isSuccess() {
+        return fileCount > 0 && fileCount < ERROR;
+    }
+
     /**
      * Node having (stored) the file.
      *
@@ -127,4 +140,16 @@ public class SearchResponse implements IResponse {
         sb.insert(0, length);
         return sb.toString();
     }
+
+    @Override
+    public byte[] encodeBinary() {
+        return BinaryCodec.writer(ID)
+                .string(queryID)
+                .number(fileCount)
+                .address(node.getIp())
+                .port(node.getPort())
+                .number(hops)
+                .list(filenames)
+                .toByteArray();
+    }
 }
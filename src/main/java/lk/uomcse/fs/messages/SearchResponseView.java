@@ -0,0 +1,109 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.entity.Node;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flyweight view of a received search response
+ * (length SEROK qid no_files IP port hops filename1 filename2 ... ...)
+ */
+public class SearchResponseView extends MessageView {
+    private static final byte[] ID = SearchResponse.ID.getBytes(StandardCharsets.US_ASCII);
+
+    private static final int QUERY_ID = 2;
+
+    private static final int FILE_COUNT = 3;
+
+    private static final int IP = 4;
+
+    private static final int PORT = 5;
+
+    private static final int HOPS = 6;
+
+    private static final int FILENAMES = 7;
+
+    @Override
+    protected boolean isValid() {
+        return tokenCount() >= FILENAMES && tokenEquals(1, ID);
+    }
+
+    /**
+     * Gets query ID
+     *
+     * @return query id
+     */
+    public String getQueryId() {
+        return stringAt(QUERY_ID);
+    }
+
+    /**
+     * Compares query ID without decoding it
+     *
+     * @param queryId a query id
+     * @return whether this response is of the query
+     */
+    public boolean isQueryId(String queryId) {
+        return tokenEquals(QUERY_ID, queryId);
+    }
+
+    /**
+     * Number of results returned
+     *
+     * @return file count or error code (see {@link SearchResponse#getFileCount()})
+     */
+    public int getFileCount() {
+        return intAt(FILE_COUNT);
+    }
+
+    /**
+     * Whether the response contains files
+     *
+     * @return whether the search was successful
+     */
+    public boolean isSuccess() {
+        int count = getFileCount();
+        return count > 0 && count < SearchResponse.ERROR;
+    }
+
+    /**
+     * Node having (stored) the file.
+     *
+     * @return a node having (stored) the file.
+     */
+    public Node getNode() {
+        return new Node(stringAt(IP), intAt(PORT));
+    }
+
+    /**
+     * Hops required to find the file(s).
+     *
+     * @return hops required to find the file(s).
+     */
+    public int getHops() {
+        return intAt(HOPS);
+    }
+
+    /**
+     * Number of file names in the response
+     *
+     * @return file name count
+     */
+    public int getFilenameCount() {
+        return tokenCount() - FILENAMES;
+    }
+
+    /**
+     * Actual names of the files.
+     *
+     * @return file names.
+     */
+    public List<String> getFilenames() {
+        List<String> filenames = new ArrayList<>(getFilenameCount());
+        for (int i = FILENAMES; i < tokenCount(); i++)
+            filenames.add(stringAt(i));
+        return filenames;
+    }
+}
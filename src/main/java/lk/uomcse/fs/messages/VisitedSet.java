@@ -0,0 +1,145 @@
+package lk.uomcse.fs.messages;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lk.uomcse.fs.entity.Node;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bloom filter of the nodes a search request passed through or was sent to, carried by the request as a single
+ * token (see {@link SearchRequest}).
+ * <p>
+ * The token is {@link #MARKER} followed by the bits in hex. Nodes already in the set are not sent the request again.
+ * A false positive only costs a neighbour the request, which it may still get over another path.
+ */
+public class VisitedSet {
+    public static final char MARKER = '#';
+
+    private static final int BITS = 256;
+
+    private static final int HASHES = 3;
+
+    public static final int TOKEN_LENGTH = 1 + BITS / 4;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private final long[] bits;
+
+    /**
+     * Creates an empty set
+     */
+    public VisitedSet() {
+        this(new long[BITS / Long.SIZE]);
+    }
+
+    private VisitedSet(long[] bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Adds a node
+     *
+     * @param node a node
+     */
+    public void add(Node node) {
+        long hash = hash(node);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = bit(hash, i);
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    /**
+     * Whether the node may have been added
+     *
+     * @param node a node
+     * @return false if the node was never added
+     */
+    public boolean mightContain(Node node) {
+        long hash = hash(node);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = bit(hash, i);
+            if ((bits[bit >>> 6] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Copy of the set
+     *
+     * @return set with the same nodes
+     */
+    public VisitedSet copy() {
+        return new VisitedSet(bits.clone());
+    }
+
+    /**
+     * Whether a token of a message is a visited set
+     *
+     * @param token a token
+     * @return whether the token can be parsed as a visited set
+     */
+    public static boolean isToken(String token) {
+        if (token.length() != TOKEN_LENGTH || token.charAt(0) != MARKER)
+            return false;
+        for (int i = 1; i < TOKEN_LENGTH; i++) {
+            if (Character.digit(token.charAt(i), 16) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a visited set token
+     *
+     * @param token a token as produced by {@link #toString()}
+     * @return the visited set
+     */
+    public static VisitedSet parse(String token) {
+        if (!isToken(token))
+            throw new IllegalArgumentException(String.format("Not a visited set: %s", token));
+        long[] bits = new long[BITS / Long.SIZE];
+        for (int i = 0; i < bits.length; i++) {
+            int start = 1 + i * 16;
+            bits[i] = Long.parseUnsignedLong(token.substring(start, start + 16), 16);
+        }
+        return new VisitedSet(bits);
+    }
+
+    /**
+     * Token form of the set
+     *
+     * @return marker followed by the bits in hex
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(TOKEN_LENGTH).append(MARKER);
+        for (long word : bits) {
+            for (int shift = 60; shift >= 0; shift -= 4)
+                sb.append(HEX[(int) (word >>> shift) & 0xF]);
+        }
+        return sb.toString();
+    }
+
+    private static long hash(Node node) {
+        ByteBuffer hash = ByteBuffer.wrap(HASH.newHasher()
+                .putString(node.getIp(), StandardCharsets.UTF_8)
+                .putInt(node.getPort())
+                .hash().asBytes());
+        return hash.getLong();
+    }
+
+    // Double hashing over the two halves of the hash
+    private static int bit(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        return ((h1 + i * h2) & Integer.MAX_VALUE) % BITS;
+    }
+}
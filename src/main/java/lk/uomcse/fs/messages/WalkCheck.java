@@ -0,0 +1,74 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.entity.Node;
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
+
+// length WALKCHK qid IP port
+public class WalkCheck implements IRequest {
+    public static final String ID = "WALKCHK";
+
+    private String queryId;
+
+    private Node node;
+
+    /**
+     * Constructor
+     *
+     * @param queryId id of the query walked
+     * @param node    node holding the walker (asking whether to continue)
+     */
+    public WalkCheck(String queryId, Node node) {
+        this.queryId = queryId;
+        this.node = node;
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    /**
+     * Parses walk check request
+     *
+     * @param msg message in string
+     * @return walk check message
+     */
+    public static WalkCheck parse(String msg) {
+        if (msg == null)
+            throw new NullPointerException();
+        String[] request = msg.trim().split(" +");
+        if (request.length != 5)
+            throw new InvalidFormatException("Parsing failed due to not having correct word length.");
+        if (!request[1].equals(ID))
+            throw new InvalidFormatException(String.format("Parsing failed due to not having message id: %s. (Received message ID: %s)", ID, request[1]));
+        try {
+            return new WalkCheck(request[2], new Node(request[3], Integer.parseInt(request[4])));
+        } catch (NumberFormatException e) {
+            throw new InvalidFormatException("Parsing failed due to not having a number at port.", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(" ");
+        sb.append(ID).append(" ")
+                .append(queryId).append(" ")
+                .append(node.getIp()).append(" ")
+                .append(node.getPort());
+        String length = String.format("%04d", sb.length() + 4);
+        sb.insert(0, length);
+        return sb.toString();
+    }
+
+    @Override
+    public byte[] encodeBinary() {
+        return BinaryCodec.writer(ID)
+                .string(queryId)
+                .address(node.getIp())
+                .port(node.getPort())
+                .toByteArray();
+    }
+}
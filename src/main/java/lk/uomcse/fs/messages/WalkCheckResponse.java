@@ -0,0 +1,74 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
+
+// length WALKOK qid value
+public class WalkCheckResponse implements IResponse {
+    public static final String ID = "WALKOK";
+
+    private String queryId;
+
+    // True: keep walking; False: stop
+    private boolean success;
+
+    /**
+     * Constructor
+     *
+     * @param queryId id of the query walked
+     * @param success whether walkers of the query should continue
+     */
+    public WalkCheckResponse(String queryId, boolean success) {
+        this.queryId = queryId;
+        this.success = success;
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    /**
+     * Returns whether walkers of the query should continue
+     *
+     * @return whether to keep walking
+     */
+    @Override
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Parses walk check response
+     *
+     * @param reply reply in string
+     * @return walk check response message
+     */
+    public static WalkCheckResponse parse(String reply) {
+        if (reply == null)
+            throw new NullPointerException();
+        String[] response = reply.trim().split(" +");
+        if (response.length != 4)
+            throw new InvalidFormatException("Parsing failed due to not having enough content to match the format.");
+        if (!response[1].equals(ID))
+            throw new InvalidFormatException(String.format("Parsing failed due to not having message id: %s. (Received message ID: %s)", ID, response[1]));
+        return new WalkCheckResponse(response[2], response[3].equals("0"));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(" ");
+        sb.append(ID).append(" ")
+                .append(queryId).append(" ")
+                .append(success ? "0" : "9999");
+        String length = String.format("%04d", sb.length() + 4);
+        sb.insert(0, length);
+        return sb.toString();
+    }
+
+    @Override
+    public byte[] encodeBinary() {
+        return BinaryCodec.writer(ID)
+                .string(queryId)
+                .number(success ? 0 : 9999)
+                .toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.entity.Node;
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
+
+import java.util.Arrays;
+
+// length WALK qid IP port file_name hops
+public class WalkRequest implements IRequest {
+    public static final String ID = "WALK";
+
+    private String queryId;
+
+    private Node node;
+
+    private String filename;
+
+    private int hops;
+
+    /**
+     * Constructor
+     *
+     * @param queryId  id of the query given by the origin
+     * @param node     origin of the query
+     * @param filename filename to search for
+     * @param hops     number of hops the walker took
+     */
+    public WalkRequest(String queryId, Node node, String filename, int hops) {
+        this.queryId = queryId;
+        this.node = node;
+        this.filename = filename;
+        this.hops = hops;
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    /**
+     * IP:Port of the origin
+     *
+     * @return node representing origin
+     */
+    public Node getNode() {
+        return node;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public int getHops() {
+        return hops;
+    }
+
+    /**
+     * Creates the walker for the next hop
+     *
+     * @return walker with hops incremented
+     */
+    public WalkRequest next() {
+        return new WalkRequest(queryId, node, filename, hops + 1);
+    }
+
+    /**
+     * Parses walk request
+     *
+     * @param msg message in string
+     * @return walk request message
+     */
+    public static WalkRequest parse(String msg) {
+        if (msg == null)
+            throw new NullPointerException();
+        String[] request = msg.trim().split(" +");
+        if (request.length < 7)
+            throw new InvalidFormatException("Parsing failed due to not having enough content to match the format.");
+        if (!request[1].equals(ID))
+            throw new InvalidFormatException(String.format("Parsing failed due to not having message id: %s. (Received message ID: %s)", ID, request[1]));
+        try {
+            String qid = request[2];
+            String ip = request[3];
+            int port = Integer.parseInt(request[4]);
+            String filename = String.join(" ", Arrays.asList(request).subList(5, request.length - 1));
+            int hops = Integer.parseInt(request[request.length - 1]);
+            return new WalkRequest(qid, new Node(ip, port), filename, hops);
+        } catch (NumberFormatException e) {
+            throw new InvalidFormatException("Parsing failed due to not having a number at port or hops.", e);
+        }
+    }
+
+    /**
+     * To string method (length WALK qid IP port file_name hops)
+     *
+     * @return a string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(" ");
+        sb.append(ID).append(" ")
+                .append(this.queryId).append(" ")
+                .append(node.getIp()).append(" ")
+                .append(node.getPort()).append(" ")
+                .append(this.filename).append(" ")
+                .append(this.hops);
+        String length = String.format("%04d", sb.length() + 4);
+        sb.insert(0, length);
+        return sb.toString();
+    }
+
+    @Override
+    public byte[] encodeBinary() {
+        return BinaryCodec.writer(ID)
+                .string(queryId)
+                .address(node.getIp())
+                .port(node.getPort())
+                .string(filename)
+                .number(hops)
+                .toByteArray();
+    }
+}
@@ -1,5 +1,6 @@
 package lk.uomcse.fs.model;
 
+import lk.uomcse.fs.messages.IMessage;
 import lk.uomcse.fs.utils.TextFormatUtils;
 import lk.uomcse.fs.utils.error.BsFullError;
 import lk.uomcse.fs.utils.error.ErrorInCommand;
@@ -13,7 +14,10 @@ import lk.uomcse.fs.utils.exceptions.BootstrapException;
 import lk.uomcse.fs.utils.exceptions.RequestFailedException;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
 public class BootstrapService {
@@ -21,6 +25,8 @@ public class BootstrapService {
 
     private final static int MAX_RETRIES = 3;
 
+    private final static int REPLY_TIMEOUT = 5;
+
     // -----------------------------------------------------------------------------------------------------------------
 
     private final BootstrapServer server;
@@ -62,8 +68,7 @@ public class BootstrapService {
         int retries = 0;
         while (true)
             try {
-                this.handler.sendMessage(this.server.getHost(), this.server.getPort(), msg);
-                reply = this.handler.receiveMessage(RegisterResponse.ID, 5);
+                reply = this.request(msg, RegisterResponse.ID);
                 break;
             } catch (TimeoutException e) {
                 if (retries < MAX_RETRIES) {
@@ -122,8 +127,7 @@ public class BootstrapService {
         while (count < MAX_RETRIES) {
             try {
                 // Method will wait for reply
-                this.handler.sendMessage(this.server.getHost(), this.server.getPort(), msg);
-                reply = this.handler.receiveMessage(UnregisterResponse.ID, 5);
+                reply = this.request(msg, UnregisterResponse.ID);
                 LOGGER.info(String.format("Bootstrap Server replied: %s", reply));
                 UnregisterResponse rsp = UnregisterResponse.parse(reply);
                 return rsp.isSuccess();
@@ -136,6 +140,28 @@ public class BootstrapService {
     }
 
 
+    /**
+     * Requests bootstrap server and waits for the reply
+     *
+     * @param msg     request
+     * @param replyId id of the expected reply
+     * @return reply of the bootstrap server
+     * @throws TimeoutException if no reply is received in time
+     */
+    private String request(IMessage msg, String replyId) throws TimeoutException {
+        Node bs = new Node(this.server.getHost(), this.server.getPort());
+        try {
+            return this.handler.request(bs, msg, replyId, REPLY_TIMEOUT).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException)
+                throw (TimeoutException) e.getCause();
+            throw new RequestFailedException("Request to bootstrap server failed.", e.getCause());
+        } catch (InterruptedException e) {
+            // TODO: change following exception
+            throw new RuntimeException("Interrupted from getting a reply.");
+        }
+    }
+
     /**
      * Connects with bootstrap server and joins to nodes provided
      *
@@ -144,9 +170,13 @@ public class BootstrapService {
     public boolean bootstrap() {
         try {
             List<Node> nodes = this.register();
-            nodes.forEach(joinService::join);
-            for (Node n : nodes) {
-                boolean status = joinService.join(n);
+            // Join all nodes concurrently
+            List<CompletableFuture<Boolean>> joins = new ArrayList<>();
+            for (Node n : nodes)
+                joins.add(joinService.joinAsync(n));
+            for (int i = 0; i < nodes.size(); i++) {
+                Node n = nodes.get(i);
+                boolean status = joins.get(i).join();
                 if (status)
                     LOGGER.info(String.format("Joined to neighbour: %s", n.toString()));
                 else
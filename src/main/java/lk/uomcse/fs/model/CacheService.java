@@ -1,22 +1,45 @@
 package lk.uomcse.fs.model;
 
 import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.EvictingQueue;
-import com.google.common.collect.Queues;
+import com.google.common.cache.RemovalListener;
 import lk.uomcse.fs.entity.Node;
 
 import java.security.InvalidParameterException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Queue;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Handle the cached node service
+ * <p>
+ * Nodes are interned to small integer ids. Each keyword maps to an immutable {@link KeywordNodes} of the ids of the
+ * nodes last seen having it, along with the nodes themselves. Ids are resolved to nodes when an entry is replaced,
+ * hence a search never maps an id reclaimed meanwhile to the node given the id next. Updates replace the entry of a keyword atomically through {@link ConcurrentMap#compute},
+ * hence updates of different keywords do not block each other and searches read consistent entries without locking.
+ * <p>
+ * A search intersects the sorted ids of its keywords starting from the keyword with the fewest nodes. If no node has
+ * all keywords, nodes having most of the keywords are returned instead.
+ * <p>
+ * The keywords of each node are indexed too, hence a node can be removed from all keywords at once when it fails, or
+ * when a fresher response about it replaces its keywords.
+ * <p>
+ * Ids are counted by the keywords holding them. Once no keyword holds a node (removed, replaced, dropped from a full
+ * keyword or evicted with its keyword) its id is reclaimed and reused, hence ids stay as few as the cached nodes.
  */
 public class CacheService {
 
-    private final ConcurrentMap<String, Queue<Node>> cacheTable;
+    private final ConcurrentMap<String, KeywordNodes> cacheTable;
+
+    // Interned nodes by id and by node
+    private final ConcurrentMap<Integer, InternedNode> nodes;
+
+    private final ConcurrentMap<Node, InternedNode> nodeIds;
+
+    // Reclaimed ids below nextId, reused lowest first. Guards assigning and reclaiming ids.
+    private final BitSet freeIds;
+
+    private int nextId;
 
     // -----------------------------------------------------------------------------------------------------------------
 
@@ -32,9 +55,21 @@ public class CacheService {
     public CacheService(int indexSize, int queueLength) {
 
         if (indexSize > 0 && queueLength > 0) {
+            // Nodes of an evicted keyword lose a reference
+            RemovalListener<String, KeywordNodes> evictions = notification -> {
+                if (notification.wasEvicted()) {
+                    for (int id : notification.getValue().sorted)
+                        release(id);
+                }
+            };
             cacheTable = CacheBuilder.newBuilder()
                     .maximumSize(indexSize)
-                    .<String, Queue<Node>>build().asMap();
+                    .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                    .removalListener(evictions)
+                    .build().asMap();
+            nodes = new ConcurrentHashMap<>();
+            nodeIds = new ConcurrentHashMap<>();
+            freeIds = new BitSet();
             this.indexSize = indexSize;
             this.queueLength = queueLength;
         } else {
@@ -44,36 +79,143 @@ public class CacheService {
 
 
     /**
-     * Update the cache table with new information
+     * Update the cache table with new information. Keywords of the node not in the file names are removed.
      *
      * @param node      newly discovered nodes
      * @param fileNames list of file names that are in the given node
      * @return if registering node to the cache was successful
      */
     public boolean update(Node node, List<String> fileNames) {
-        // TODO remove old keywords when new update comes about the existing nodes
+        InternedNode interned = intern(node);
         try {
-            for (String fileName : fileNames) {
-                fileName = fileName.toLowerCase();
-                for (String keyWord : fileName.trim().split(" +")) {
-                    synchronized (cacheTable) {
-                        cacheTable.putIfAbsent(keyWord, Queues.synchronizedQueue(EvictingQueue.create(queueLength)));
-                        Queue<Node> nodes = cacheTable.get(keyWord);
-                        // TODO check if nodes requires another synchronized block
-                        if (!nodes.contains(node)) {
-                            nodes.add(node);
-                        }
+            // Updates of a node are serialized by its interned entry
+            synchronized (interned) {
+                Set<String> keyWords = new HashSet<>();
+                for (String fileName : fileNames) {
+                    for (String keyWord : keywords(fileName)) {
+                        keyWords.add(keyWord);
+                        addTo(keyWord, interned);
                     }
                 }
+                for (String keyWord : interned.keywords) {
+                    if (!keyWords.contains(keyWord))
+                        removeFrom(keyWord, interned);
+                }
+                interned.keywords = keyWords;
             }
-            return true;
+        } finally {
+            release(interned);
+        }
+        return true;
+    }
+
+    /**
+     * Removes a node from all keywords
+     *
+     * @param node a node which failed or left
+     */
+    public void remove(Node node) {
+        InternedNode interned = nodeIds.get(node);
+        if (interned == null || !interned.retain())
+            return;
+        try {
+            synchronized (interned) {
+                for (String keyWord : interned.keywords)
+                    removeFrom(keyWord, interned);
+                interned.keywords = Collections.emptySet();
+            }
+        } finally {
+            release(interned);
+        }
+    }
+
+    /**
+     * Adds a node to the nodes of a keyword, releasing nodes dropped from the keyword when full
+     *
+     * @param keyWord  a key word
+     * @param interned the node, retained by the caller
+     */
+    private void addTo(String keyWord, InternedNode interned) {
+        int id = interned.id;
+        cacheTable.compute(keyWord, (k, entry) -> {
+            KeywordNodes updated = entry == null ? new KeywordNodes(id, interned.node)
+                    : entry.add(id, interned.node, queueLength);
+            if (updated == entry)
+                return entry;
+            interned.references.incrementAndGet();
+            // Oldest nodes dropped to make room
+            int kept = updated.recent.length - 1;
+            for (int i = 0; entry != null && i < entry.recent.length - kept; i++)
+                release(entry.recent[i]);
+            return updated;
+        });
+    }
+
+    /**
+     * Removes a node from the nodes of a keyword
+     *
+     * @param keyWord  a key word
+     * @param interned the node, retained by the caller
+     */
+    private void removeFrom(String keyWord, InternedNode interned) {
+        cacheTable.computeIfPresent(keyWord, (k, entry) -> {
+            KeywordNodes updated = entry.remove(interned.id);
+            if (updated != entry)
+                release(interned);
+            return updated;
+        });
+    }
 
-            //TODO handle exceptions properly
-        } catch (Exception ex) {
-            return false;
+    /**
+     * Gets the interned entry of a node, assigning the lowest free id if the node is new.
+     * The entry is retained and must be released by the caller.
+     *
+     * @param node a node
+     * @return retained entry of the node
+     */
+    private InternedNode intern(Node node) {
+        InternedNode interned = nodeIds.get(node);
+        if (interned != null && interned.retain())
+            return interned;
+        synchronized (freeIds) {
+            interned = nodeIds.get(node);
+            if (interned != null && interned.retain())
+                return interned;
+            // Entry of the node is new or being reclaimed
+            int id = freeIds.nextSetBit(0);
+            if (id < 0)
+                id = nextId++;
+            else
+                freeIds.clear(id);
+            interned = new InternedNode(id, node);
+            // Published after the node is readable by its id
+            nodes.put(id, interned);
+            nodeIds.put(node, interned);
+            return interned;
         }
     }
 
+    /**
+     * Releases a reference of a node, reclaiming its id once no references are left
+     *
+     * @param interned entry of the node
+     */
+    private void release(InternedNode interned) {
+        if (interned.references.decrementAndGet() > 0)
+            return;
+        synchronized (freeIds) {
+            nodeIds.remove(interned.node, interned);
+            nodes.remove(interned.id, interned);
+            freeIds.set(interned.id);
+        }
+    }
+
+    private void release(int id) {
+        InternedNode interned = nodes.get(id);
+        if (interned != null)
+            release(interned);
+    }
+
 
     /**
      * Search if the file cache has any information about node containing the given file
@@ -81,30 +223,109 @@ public class CacheService {
      * @param fileName the file name to search. Can be collection of several key words
      *                 Ex : "Windows 8", "Microsoft office"
      *                 the key word will be extracted by separating with spaces
-     * @return List of nodes containing file or null if no such nodes in cache tabel
+     * @return List of nodes containing all key words, else nodes containing most of the key words, or null if no
+     * such nodes in cache tabel
      */
     public List<Node> search(String fileName) {
-        // TODO in multi keyword filename, what if part of the keywords are expired from cache
-        List<Node> fileNodes = new ArrayList<>();
-        fileName = fileName.toLowerCase();
-        // TODO do we need mutual exclusion here
-        for (String keyWord :
-                fileName.trim().split(" +")) {
-
-            Queue<Node> keyWordNodes = cacheTable.getOrDefault(keyWord, null);
-
-            if (keyWordNodes != null)
-                if (fileNodes.isEmpty()) {
-                    fileNodes.addAll(keyWordNodes);
-                } else {
-                    fileNodes.removeIf(node -> !keyWordNodes.contains(node));
-                }
+        Set<String> keyWords = keywords(fileName);
+        List<KeywordNodes> entries = new ArrayList<>(keyWords.size());
+        for (String keyWord : keyWords) {
+            KeywordNodes entry = cacheTable.get(keyWord);
+            if (entry != null)
+                entries.add(entry);
+        }
+        if (entries.isEmpty())
+            return null;
+        // Rarest keyword first, so the candidates only shrink
+        entries.sort(Comparator.comparingInt(entry -> entry.sorted.length));
+        KeywordNodes rarest = entries.get(0);
+        int[] ids = rarest.sorted;
+        for (int i = 1; i < entries.size() && ids.length > 0; i++)
+            ids = intersect(ids, rarest, entries.get(i));
+        if (ids.length > 0 && entries.size() == keyWords.size())
+            return rarest.toNodes(ids);
+        return rank(entries);
+    }
 
-            if (fileNodes.isEmpty()) {
-                return null;
+    /**
+     * Ranks nodes having any of the keywords by the number of keywords they have
+     *
+     * @param entries nodes of each keyword
+     * @return nodes, most keywords first and by id for equal counts
+     */
+    private static List<Node> rank(List<KeywordNodes> entries) {
+        // Id and keyword count by node, as entries read at different times may give an id to different nodes
+        Map<Node, int[]> counts = new HashMap<>();
+        for (KeywordNodes entry : entries) {
+            for (int i = 0; i < entry.sorted.length; i++) {
+                int[] count = counts.get(entry.nodes[i]);
+                if (count == null)
+                    counts.put(entry.nodes[i], count = new int[]{entry.sorted[i], 0});
+                count[1]++;
             }
         }
-        return fileNodes;
+        List<Map.Entry<Node, int[]>> ranked = new ArrayList<>(counts.entrySet());
+        ranked.sort((a, b) -> a.getValue()[1] != b.getValue()[1] ? b.getValue()[1] - a.getValue()[1]
+                : Integer.compare(a.getValue()[0], b.getValue()[0]));
+        List<Node> found = new ArrayList<>(ranked.size());
+        for (Map.Entry<Node, int[]> node : ranked)
+            found.add(node.getKey());
+        return found;
+    }
+
+    /**
+     * Intersects ids of an entry with the ids of another entry
+     *
+     * @param a     sorted ids, a subset of the ids of the owner
+     * @param owner entry resolving the ids
+     * @param other another entry
+     * @return ids in both entries naming the same node
+     */
+    private static int[] intersect(int[] a, KeywordNodes owner, KeywordNodes other) {
+        int[] b = other.sorted;
+        int[] common = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                i++;
+            else if (a[i] > b[j])
+                j++;
+            else {
+                // The id may have been reclaimed and given to another node between reading the entries
+                if (owner.node(a[i]).equals(other.nodes[j]))
+                    common[k++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return k == common.length ? common : Arrays.copyOf(common, k);
+    }
+
+    /**
+     * Splits a file name to lowercase keywords. Spaces of file names in search responses are replaced by underscores,
+     * hence both separate keywords.
+     *
+     * @param fileName a file name or query
+     * @return distinct keywords
+     */
+    private static Set<String> keywords(String fileName) {
+        Set<String> keyWords = new LinkedHashSet<>();
+        for (String keyWord : fileName.toLowerCase().split("[ _]+")) {
+            if (!keyWord.isEmpty())
+                keyWords.add(keyWord);
+        }
+        return keyWords;
+    }
+
+    /**
+     * Gets nodes last seen having a keyword
+     *
+     * @param keyWord a key word
+     * @return nodes, oldest first
+     */
+    public List<Node> getNodes(String keyWord) {
+        KeywordNodes entry = cacheTable.get(keyWord.toLowerCase());
+        return entry == null ? Collections.emptyList() : entry.toNodes(entry.recent);
     }
 
 
@@ -117,8 +338,131 @@ public class CacheService {
         return queueLength;
     }
 
+    /**
+     * Gets number of nodes held by any keyword
+     *
+     * @return number of interned nodes
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
 
-    public ConcurrentMap<String, Queue<Node>> getCacheTable() {
+    public ConcurrentMap<String, KeywordNodes> getCacheTable() {
         return cacheTable;
     }
+
+    /**
+     * Id of a node and the references keeping it: keywords holding the id and updates in progress
+     */
+    private static class InternedNode {
+        private final int id;
+
+        private final Node node;
+
+        private final AtomicInteger references;
+
+        // Keywords of the node as of the latest update, guarded by this
+        private Set<String> keywords;
+
+        private InternedNode(int id, Node node) {
+            this.id = id;
+            this.node = node;
+            this.references = new AtomicInteger(1);
+            this.keywords = Collections.emptySet();
+        }
+
+        /**
+         * Adds a reference unless the id is already being reclaimed
+         *
+         * @return whether the reference was added
+         */
+        private boolean retain() {
+            int count;
+            do {
+                count = references.get();
+                if (count == 0)
+                    return false;
+            } while (!references.compareAndSet(count, count + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Ids of the nodes of a keyword, in the order last seen and sorted, and the node of each id as of the time the
+     * entry was created. Never modified once created.
+     */
+    public static class KeywordNodes {
+        private final int[] recent;
+
+        private final int[] sorted;
+
+        // Node of each id in sorted
+        private final Node[] nodes;
+
+        private KeywordNodes(int id, Node node) {
+            this(new int[]{id}, new int[]{id}, new Node[]{node});
+        }
+
+        private KeywordNodes(int[] recent, int[] sorted, Node[] nodes) {
+            this.recent = recent;
+            this.sorted = sorted;
+            this.nodes = nodes;
+        }
+
+        private Node node(int id) {
+            return nodes[Arrays.binarySearch(sorted, id)];
+        }
+
+        private List<Node> toNodes(int[] ids) {
+            List<Node> found = new ArrayList<>(ids.length);
+            for (int id : ids)
+                found.add(node(id));
+            return found;
+        }
+
+        /**
+         * Adds a node, dropping the oldest node if full
+         *
+         * @param id          id of the node
+         * @param node        the node
+         * @param queueLength max number of nodes
+         * @return entry with the node
+         */
+        private KeywordNodes add(int id, Node node, int queueLength) {
+            if (Arrays.binarySearch(sorted, id) >= 0)
+                return this;
+            int from = recent.length < queueLength ? 0 : recent.length - queueLength + 1;
+            int[] recent = Arrays.copyOfRange(this.recent, from, this.recent.length + 1);
+            recent[recent.length - 1] = id;
+            int[] sorted = recent.clone();
+            Arrays.sort(sorted);
+            Node[] nodes = new Node[sorted.length];
+            for (int i = 0; i < sorted.length; i++)
+                nodes[i] = sorted[i] == id ? node : node(sorted[i]);
+            return new KeywordNodes(recent, sorted, nodes);
+        }
+
+        /**
+         * Removes a node
+         *
+         * @param id id of the node
+         * @return entry without the node or null if no nodes are left
+         */
+        private KeywordNodes remove(int id) {
+            int index = Arrays.binarySearch(sorted, id);
+            if (index < 0)
+                return this;
+            if (sorted.length == 1)
+                return null;
+            int[] sorted = new int[this.sorted.length - 1];
+            System.arraycopy(this.sorted, 0, sorted, 0, index);
+            System.arraycopy(this.sorted, index + 1, sorted, index, sorted.length - index);
+            Node[] nodes = new Node[sorted.length];
+            System.arraycopy(this.nodes, 0, nodes, 0, index);
+            System.arraycopy(this.nodes, index + 1, nodes, index, nodes.length - index);
+            int[] recent = Arrays.stream(this.recent).filter(n -> n != id).toArray();
+            return new KeywordNodes(recent, sorted, nodes);
+        }
+    }
 }
@@ -0,0 +1,100 @@
+package lk.uomcse.fs.model;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Remembers queries seen recently to suppress duplicates.
+ * <p>
+ * Queries are keyed by their origin and query id, and kept in a ring of hash sets each covering a slice of time.
+ * A query is remembered for at least the window minus one slice; sets of slices falling out of the window are
+ * dropped as a whole. Checks are O(1) per slice and take no lock, hence scale with the number of origins.
+ */
+public class DuplicateFilter {
+    private final long bucketMillis;
+
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    /**
+     * Creates a filter
+     *
+     * @param window  time to remember queries for
+     * @param buckets number of time slices of the window
+     * @param unit    unit of the window
+     */
+    public DuplicateFilter(long window, int buckets, TimeUnit unit) {
+        if (window <= 0 || buckets < 2)
+            throw new IllegalArgumentException("The window should be positive and have at least two buckets");
+        this.bucketMillis = Math.max(1, unit.toMillis(window) / buckets);
+        this.buckets = new AtomicReferenceArray<>(buckets);
+    }
+
+    /**
+     * Remembers the query
+     *
+     * @param origin  ip:port of the node the query originated from
+     * @param queryId id of the query given by the origin
+     * @return true if the query is new otherwise return false
+     */
+    public boolean add(String origin, String queryId) {
+        return add(origin + "/" + queryId, System.currentTimeMillis());
+    }
+
+    /**
+     * Whether the query was seen recently
+     *
+     * @param origin  ip:port of the node the query originated from
+     * @param queryId id of the query given by the origin
+     * @return whether the query is remembered
+     */
+    public boolean contains(String origin, String queryId) {
+        return seen(origin + "/" + queryId, System.currentTimeMillis() / bucketMillis);
+    }
+
+    boolean add(String key, long now) {
+        long epoch = now / bucketMillis;
+        if (seen(key, epoch - 1))
+            return false;
+        return current(epoch).keys.add(key);
+    }
+
+    /**
+     * Looks the key up in slices of the window ending at given epoch
+     */
+    private boolean seen(String key, long epoch) {
+        for (int i = 0; i < buckets.length(); i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.epoch > epoch - buckets.length() && bucket.epoch <= epoch
+                    && bucket.keys.contains(key))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gets the slice of the epoch, replacing the expired slice in its place
+     */
+    private Bucket current(long epoch) {
+        int index = (int) (epoch % buckets.length());
+        while (true) {
+            Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.epoch >= epoch)
+                return bucket;
+            Bucket fresh = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, fresh))
+                return fresh;
+        }
+    }
+
+    private static class Bucket {
+        private final long epoch;
+
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
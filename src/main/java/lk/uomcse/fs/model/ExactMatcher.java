@@ -0,0 +1,19 @@
+package lk.uomcse.fs.model;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Matches the whole keyword
+ */
+public class ExactMatcher implements KeywordMatcher {
+    @Override
+    public void add(String keyword) {
+        // Posting lists are looked up by the keyword itself
+    }
+
+    @Override
+    public Collection<String> expand(String keyword) {
+        return Collections.singletonList(keyword);
+    }
+}
@@ -0,0 +1,351 @@
+package lk.uomcse.fs.model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Filenames of this node with an inverted index of their keywords.
+ * <p>
+ * Each filename gets an id in the order it is added. Keywords (space separated tokens of filenames) map to posting
+ * lists of the ids of filenames containing them, sorted by id. A query is answered by intersecting posting lists of
+ * its keywords starting from the shortest one, hence the cost depends on the number of matches rather than the
+ * number of files.
+ * <p>
+ * Files are spread over shards by id. Large catalogs are searched on all shards in parallel using fork/join and the
+ * matches are merged in id order. Adding files is serialized, but never blocks searches: posting lists are
+ * append only and published after they are written, hence searches see a consistent prefix of each list.
+ * <p>
+ * Keywords of a query match by their {@link MatchMode}: whole keywords through the posting lists, prefixes through a
+ * sorted set of keywords and misspellings through a trigram index of keywords. A keyword is first expanded to the
+ * matching keywords of filenames, then the union of their posting lists is intersected with those of the other
+ * keywords.
+ * <p>
+ * Filenames are kept off-heap in a {@link FilenameStore} and the index refers to them by id only, hence large
+ * catalogs cost little more heap than their distinct keywords.
+ * <p>
+ * Behaves as a list of filenames (appending only), so the index is updated wherever files are added.
+ */
+public class FileIndex extends AbstractList<String> {
+    // Catalogs smaller than this are searched on the calling thread
+    private static final int PARALLEL_THRESHOLD = 10000;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private final Shard[] shards;
+
+    private final FilenameStore filenames;
+
+    // Distinct keywords of filenames
+    private final Set<String> vocabulary;
+
+    private final Map<MatchMode, KeywordMatcher> matchers;
+
+    /**
+     * Creates an empty index with a shard per core
+     */
+    public FileIndex() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an empty index
+     *
+     * @param shards number of shards
+     */
+    public FileIndex(int shards) {
+        if (shards < 1)
+            throw new IllegalArgumentException("The number of shards should be greater than zero");
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++)
+            this.shards[i] = new Shard();
+        this.filenames = new FilenameStore();
+        this.vocabulary = ConcurrentHashMap.newKeySet();
+        this.matchers = new EnumMap<>(MatchMode.class);
+        this.matchers.put(MatchMode.EXACT, new ExactMatcher());
+        this.matchers.put(MatchMode.PREFIX, new PrefixMatcher());
+        this.matchers.put(MatchMode.FUZZY, new FuzzyMatcher());
+    }
+
+    /**
+     * Gets filename by id
+     *
+     * @param index id of the filename
+     * @return filename
+     */
+    @Override
+    public String get(int index) {
+        return filenames.get(index);
+    }
+
+    @Override
+    public int size() {
+        return filenames.size();
+    }
+
+    /**
+     * Whether the filename was added. Looked up through the index unless the filename has no keywords.
+     *
+     * @param o a filename
+     * @return whether the filename was added
+     */
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String))
+            return false;
+        String filename = (String) o;
+        if (tokenize(filename).isEmpty())
+            return super.contains(o);
+        return search(filename).contains(filename);
+    }
+
+    /**
+     * Adds a filename and indexes its keywords. Filenames can only be appended.
+     *
+     * @param index    must be the size of the list
+     * @param filename filename to add
+     */
+    @Override
+    public synchronized void add(int index, String filename) {
+        if (index != filenames.size())
+            throw new UnsupportedOperationException("Filenames can only be appended to the index.");
+        // Store the filename before its postings so every id found by a search is readable
+        int id = filenames.add(filename);
+        List<String> keywords = tokenize(filename);
+        for (String keyword : keywords) {
+            if (vocabulary.add(keyword))
+                matchers.values().forEach(matcher -> matcher.add(keyword));
+        }
+        shards[id % shards.length].add(id, keywords);
+        modCount++;
+    }
+
+    /**
+     * Finds filenames matching all keywords of the query in given mode
+     *
+     * @param query space separated keywords
+     * @param mode  how keywords match
+     * @return matching filenames in the order they were added
+     */
+    public List<String> search(String query, MatchMode mode) {
+        return search(mode.apply(query));
+    }
+
+    /**
+     * Finds filenames matching all keywords of the query. Keywords match in the mode marked by their suffix
+     * (see {@link MatchMode}), exactly if not marked.
+     *
+     * @param query space separated keywords
+     * @return matching filenames in the order they were added
+     */
+    public List<String> search(String query) {
+        List<Collection<String>> keywords = new ArrayList<>();
+        for (String keyword : tokenize(query)) {
+            String stripped = MatchMode.strip(keyword);
+            if (stripped.isEmpty())
+                continue;
+            Collection<String> expanded = matchers.get(MatchMode.of(keyword)).expand(stripped);
+            if (expanded.isEmpty())
+                return new ArrayList<>();
+            keywords.add(expanded);
+        }
+        if (keywords.isEmpty())
+            return new ArrayList<>();
+        int[] ids;
+        if (shards.length == 1 || filenames.size() < PARALLEL_THRESHOLD)
+            ids = new SearchTask(keywords, 0, shards.length).compute();
+        else
+            ids = ForkJoinPool.commonPool().invoke(new SearchTask(keywords, 0, shards.length));
+        List<String> found = new ArrayList<>(ids.length);
+        for (int id : ids)
+            found.add(filenames.get(id));
+        return found;
+    }
+
+    /**
+     * Splits text to keywords separated by one or more spaces
+     *
+     * @param text filename or query
+     * @return distinct keywords in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean separator = i == text.length() || text.charAt(i) == ' ';
+            if (separator && start >= 0) {
+                String token = text.substring(start, i);
+                if (!tokens.contains(token))
+                    tokens.add(token);
+                start = -1;
+            } else if (!separator && start < 0) {
+                start = i;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Searches a range of shards, splitting it until a single shard is left
+     */
+    private class SearchTask extends RecursiveTask<int[]> {
+        private final List<Collection<String>> keywords;
+
+        private final int from;
+
+        private final int to;
+
+        private SearchTask(List<Collection<String>> keywords, int from, int to) {
+            this.keywords = keywords;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from == 1)
+                return shards[from].search(keywords);
+            int middle = (from + to) >>> 1;
+            SearchTask left = new SearchTask(keywords, from, middle);
+            left.fork();
+            int[] right = new SearchTask(keywords, middle, to).compute();
+            return merge(left.join(), right);
+        }
+
+        private int[] merge(int[] a, int[] b) {
+            int[] merged = new int[a.length + b.length];
+            int i = 0, j = 0, k = 0;
+            while (i < a.length && j < b.length)
+                merged[k++] = a[i] < b[j] ? a[i++] : b[j++];
+            while (i < a.length)
+                merged[k++] = a[i++];
+            while (j < b.length)
+                merged[k++] = b[j++];
+            return merged;
+        }
+    }
+
+    /**
+     * Inverted index of the files in a shard
+     */
+    private static class Shard {
+        private static final int[] EMPTY = new int[0];
+
+        private final ConcurrentMap<String, Postings> postings = new ConcurrentHashMap<>();
+
+        /**
+         * Gets files containing any of the keywords
+         *
+         * @param keywords alternative keywords
+         * @return postings of the files or null if none
+         */
+        private Postings union(Collection<String> keywords) {
+            if (keywords.size() == 1)
+                return postings.get(keywords.iterator().next());
+            int[] ids = EMPTY;
+            int size = 0;
+            for (String keyword : keywords) {
+                Postings list = postings.get(keyword);
+                if (list == null)
+                    continue;
+                if (size + list.size > ids.length)
+                    ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + list.size));
+                System.arraycopy(list.ids, 0, ids, size, list.size);
+                size += list.size;
+            }
+            if (size == 0)
+                return null;
+            Arrays.sort(ids, 0, size);
+            int distinct = 1;
+            for (int i = 1; i < size; i++) {
+                if (ids[i] != ids[distinct - 1])
+                    ids[distinct++] = ids[i];
+            }
+            return new Postings(ids, distinct);
+        }
+
+        /**
+         * Indexes a file. Called by one writer at a time.
+         *
+         * @param id       id of the file
+         * @param keywords distinct keywords of the filename
+         */
+        private void add(int id, List<String> keywords) {
+            for (String keyword : keywords) {
+                Postings list = postings.get(keyword);
+                postings.put(keyword, list == null ? new Postings(id) : list.append(id));
+            }
+        }
+
+        /**
+         * Finds files of this shard containing a keyword of each group
+         *
+         * @param keywords groups of alternative keywords
+         * @return sorted ids of matching files
+         */
+        private int[] search(List<Collection<String>> keywords) {
+            Postings[] lists = new Postings[keywords.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = union(keywords.get(i));
+                if (lists[i] == null)
+                    return EMPTY;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+            int[] ids = Arrays.copyOf(lists[0].ids, lists[0].size);
+            int count = ids.length;
+            for (int i = 1; i < lists.length && count > 0; i++)
+                count = lists[i].retain(ids, count);
+            return count == ids.length ? ids : Arrays.copyOf(ids, count);
+        }
+    }
+
+    /**
+     * Sorted ids of filenames containing a keyword. Ids up to size are never changed, hence a snapshot can be read
+     * while the writer appends to a newer one sharing the same array.
+     */
+    private static class Postings {
+        private final int[] ids;
+
+        private final int size;
+
+        private Postings(int id) {
+            this(new int[]{id, 0, 0, 0}, 1);
+        }
+
+        private Postings(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        private Postings append(int id) {
+            int[] ids = size == this.ids.length ? Arrays.copyOf(this.ids, size * 2) : this.ids;
+            ids[size] = id;
+            return new Postings(ids, size + 1);
+        }
+
+        /**
+         * Keeps ids also in this list
+         *
+         * @param ids   sorted ids
+         * @param count number of ids
+         * @return number of ids kept at the beginning of the array
+         */
+        private int retain(int[] ids, int count) {
+            int kept = 0;
+            int from = 0;
+            // Binary search the rest of this (longer) list for each candidate
+            for (int i = 0; i < count && from < size; i++) {
+                int found = Arrays.binarySearch(this.ids, from, size, ids[i]);
+                if (found >= 0) {
+                    ids[kept++] = ids[i];
+                    from = found + 1;
+                } else {
+                    from = -found - 1;
+                }
+            }
+            return kept;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package lk.uomcse.fs.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Filenames kept as UTF-8 bytes in off-heap arenas and referred to by id.
+ * <p>
+ * Filenames are appended to large direct buffers, hence a catalog costs about its raw bytes plus 12 bytes per file
+ * on the heap. Strings are created only when a filename is read. One writer may append at a time while any number
+ * of readers read filenames already added.
+ */
+public class FilenameStore {
+    private static final int ARENA_SIZE = 1 << 20;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private volatile ByteBuffer[] arenas;
+
+    // Arena index (high 32 bits) and offset (low 32 bits) of each filename
+    private volatile long[] locations;
+
+    private volatile int[] lengths;
+
+    private volatile int size;
+
+    /**
+     * Creates an empty store
+     */
+    public FilenameStore() {
+        this.arenas = new ByteBuffer[0];
+        this.locations = new long[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Appends a filename. Must not be called concurrently.
+     *
+     * @param filename filename
+     * @return id of the filename
+     */
+    public int add(String filename) {
+        byte[] bytes = filename.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer[] arenas = this.arenas;
+        ByteBuffer arena = arenas.length == 0 ? null : arenas[arenas.length - 1];
+        if (arena == null || arena.remaining() < bytes.length) {
+            // Filenames larger than an arena get an arena of their own
+            arena = ByteBuffer.allocateDirect(Math.max(ARENA_SIZE, bytes.length));
+            arenas = Arrays.copyOf(arenas, arenas.length + 1);
+            arenas[arenas.length - 1] = arena;
+            this.arenas = arenas;
+        }
+        int id = size;
+        if (id == locations.length) {
+            locations = Arrays.copyOf(locations, id * 2);
+            lengths = Arrays.copyOf(lengths, id * 2);
+        }
+        locations[id] = ((long) (arenas.length - 1) << 32) | arena.position();
+        lengths[id] = bytes.length;
+        arena.put(bytes);
+        size = id + 1;
+        return id;
+    }
+
+    /**
+     * Gets a filename
+     *
+     * @param id id of the filename
+     * @return filename
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException(String.format("Index: %d, Size: %d", id, size));
+        long location = locations[id];
+        byte[] bytes = new byte[lengths[id]];
+        ByteBuffer arena = arenas[(int) (location >>> 32)].duplicate();
+        arena.position((int) location);
+        arena.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets number of filenames
+     *
+     * @return filename count
+     */
+    public int size() {
+        return size;
+    }
+}
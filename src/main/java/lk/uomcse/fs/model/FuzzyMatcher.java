@@ -0,0 +1,110 @@
+package lk.uomcse.fs.model;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Matches keywords within a small edit distance of the keyword.
+ * <p>
+ * Keywords are indexed by their trigrams. Keywords sharing enough trigrams with the keyword are candidates, which
+ * are then verified by computing the edit distance. An edit changes at most 3 trigrams, hence no match is missed.
+ * Short keywords may have fewer trigrams than edits can change, so every keyword within the length window is
+ * verified instead.
+ */
+public class FuzzyMatcher implements KeywordMatcher {
+    private static final int GRAM = 3;
+
+    // Keywords longer than this may have 2 edits, others 1
+    private static final int SHORT_KEYWORD = 4;
+
+    private final ConcurrentMap<String, Set<String>> grams = new ConcurrentHashMap<>();
+
+    // Keywords by length, for keywords too short to filter by trigrams
+    private final ConcurrentMap<Integer, Set<String>> lengths = new ConcurrentHashMap<>();
+
+    @Override
+    public void add(String keyword) {
+        for (String gram : grams(keyword))
+            grams.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(keyword);
+        lengths.computeIfAbsent(keyword.length(), l -> ConcurrentHashMap.newKeySet()).add(keyword);
+    }
+
+    @Override
+    public Collection<String> expand(String keyword) {
+        int edits = keyword.length() > SHORT_KEYWORD ? 2 : 1;
+        Set<String> keywordGrams = grams(keyword);
+        int required = keywordGrams.size() - GRAM * edits;
+        List<String> matches = new ArrayList<>();
+        if (required <= 0) {
+            // Matches may share no trigram with the keyword
+            for (int length = keyword.length() - edits; length <= keyword.length() + edits; length++) {
+                Set<String> candidates = lengths.get(length);
+                if (candidates != null)
+                    for (String candidate : candidates)
+                        if (distance(keyword, candidate, edits) <= edits)
+                            matches.add(candidate);
+            }
+            return matches;
+        }
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : keywordGrams) {
+            Set<String> candidates = grams.get(gram);
+            if (candidates != null)
+                for (String candidate : candidates)
+                    shared.merge(candidate, 1, Integer::sum);
+        }
+        shared.forEach((candidate, count) -> {
+            if (count >= required && Math.abs(candidate.length() - keyword.length()) <= edits
+                    && distance(keyword, candidate, edits) <= edits)
+                matches.add(candidate);
+        });
+        return matches;
+    }
+
+    /**
+     * Gets trigrams of the keyword padded at both ends
+     *
+     * @param keyword a keyword
+     * @return distinct trigrams
+     */
+    private static Set<String> grams(String keyword) {
+        String padded = "$" + keyword + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= padded.length(); i++)
+            grams.add(padded.substring(i, i + GRAM));
+        if (grams.isEmpty())
+            grams.add(padded);
+        return grams;
+    }
+
+    /**
+     * Computes Levenshtein distance, giving up once it exceeds the limit
+     *
+     * @param a     a keyword
+     * @param b     another keyword
+     * @param limit max distance of interest
+     * @return distance or a value larger than the limit
+     */
+    static int distance(String a, String b, int limit) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++)
+            previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int best = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                best = Math.min(best, current[j]);
+            }
+            if (best > limit)
+                return best;
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -6,6 +6,7 @@ import org.apache.log4j.Logger;
 
 import java.util.List;
 import java.util.ListIterator;
+import java.util.function.Consumer;
 
 /**
  * The {@code HealthMonitorService} class measures the health of neighbor nodes.
@@ -23,6 +24,9 @@ public class HealthMonitorService extends Thread {
     // Neighbors are the neighbor-nodes of the self-node.
     private final List<Node> neighbors;
 
+    // Called when health of a neighbor drops to zero
+    private final Consumer<Node> onFailure;
+
     // -----------------------------------------------------------------------------------------------------------------
 
     // Activation of the {@code HealthMonitorService}
@@ -34,7 +38,19 @@ public class HealthMonitorService extends Thread {
      * @param neighbors
      */
     public HealthMonitorService(List<Node> neighbors) {
+        this(neighbors, node -> {
+        });
+    }
+
+    /**
+     * Creates ne heartbeat object
+     *
+     * @param neighbors neighbor nodes of the self node
+     * @param onFailure called with a neighbor when its health drops to zero
+     */
+    public HealthMonitorService(List<Node> neighbors, Consumer<Node> onFailure) {
         this.neighbors = neighbors;
+        this.onFailure = onFailure;
     }
 
     /**
@@ -43,8 +59,11 @@ public class HealthMonitorService extends Thread {
     private void measureHealth() {
         for (final ListIterator<Node> iterator = this.neighbors.listIterator(); iterator.hasNext(); ) {
             final Node neighbor = iterator.next();
+            int health = neighbor.getHealth();
             neighbor.setHealth(neighbor.getPulseCount() * 10 / 5);
             LOGGER.debug(String.format("Neighbour %s health updated %d", neighbor.toString(), neighbor.getHealth()));
+            if (health > 0 && neighbor.getHealth() == 0)
+                onFailure.accept(neighbor);
             iterator.set(neighbor);
         }
     }
@@ -67,7 +67,7 @@ public class HeartbeatService extends Thread {
         try {
             for (Node neighbor : neighbors) {
                 LOGGER.info("Sending Heartbeat Message:" + neighbor.getIp());
-                this.requestHandler.sendMessage(neighbor.getIp(), neighbor.getPort(), this.pulse);
+                this.requestHandler.sendMessage(neighbor, this.pulse);
             }
             Thread.sleep(SLEEP_TIME);
         } catch (InterruptedException e) {
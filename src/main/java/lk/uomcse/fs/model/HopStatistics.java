@@ -0,0 +1,54 @@
+package lk.uomcse.fs.model;
+
+import java.util.Arrays;
+
+/**
+ * Distances (in hops) of recent search hits, used to choose how far searches reach
+ */
+public class HopStatistics {
+    private final int[] distances;
+
+    private int count;
+
+    private int next;
+
+    /**
+     * Creates statistics of the latest hits
+     *
+     * @param size number of hits remembered
+     */
+    public HopStatistics(int size) {
+        this.distances = new int[size];
+    }
+
+    /**
+     * Records distance of a hit
+     *
+     * @param distance hops from the origin to the node having the file
+     */
+    public synchronized void record(int distance) {
+        distances[next] = distance;
+        next = (next + 1) % distances.length;
+        if (count < distances.length)
+            count++;
+    }
+
+    /**
+     * Gets distance covering given fraction of recent hits
+     *
+     * @param fraction fraction of hits (0 to 1)
+     * @return distance or -1 if no hits are recorded
+     */
+    public synchronized int percentile(double fraction) {
+        if (count == 0)
+            return -1;
+        int[] sorted = Arrays.copyOf(distances, count);
+        Arrays.sort(sorted);
+        int index = Math.max(0, (int) Math.ceil(fraction * count) - 1);
+        return sorted[Math.min(count - 1, index)];
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+}
@@ -8,11 +8,13 @@ import lk.uomcse.fs.messages.JoinResponse;
 import org.apache.log4j.Logger;
 
 import java.util.List;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CompletableFuture;
 
 public class JoinService extends Thread {
     private final static Logger LOGGER = Logger.getLogger(JoinService.class.getName());
 
+    private final static int JOIN_TIMEOUT = 5;
+
     // -----------------------------------------------------------------------------------------------------------------
 
     private final RequestHandler handler;
@@ -39,6 +41,9 @@ public class JoinService extends Thread {
         this.self = self;
         this.neighbours = neighbours;
         this.joinRetries = 3;
+        // Refuse joins while overloaded
+        this.handler.setRejectHandler(JoinRequest.ID, packet ->
+                handler.sendMessage(JoinRequest.parse(packet.getMessage()).getNode(), new JoinResponse(false)));
     }
 
     /**
@@ -54,9 +59,11 @@ public class JoinService extends Thread {
             JoinRequest request = JoinRequest.parse(msg);
             IMessage reply = new JoinResponse(true);
             LOGGER.info(String.format("Replying to join request: %s", reply.toString()));
-            // Request handling section
-            this.handler.sendMessage(request.getNode().getIp(), request.getNode().getPort(), reply);
             Node n = request.getNode();
+            // A rejoining node may run other software at the same address; text until it offers binary again
+            this.handler.setBinary(n, false);
+            // Request handling section
+            this.handler.sendMessage(n, reply);
             synchronized (neighbours) {
                 // Do not add duplicates (behave like a set)
                 if (!neighbours.contains(n)) {
@@ -74,26 +81,54 @@ public class JoinService extends Thread {
      * @return whether join request is success or not
      */
     public boolean join(Node n) {
+        return joinAsync(n).join();
+    }
+
+    /**
+     * Joins to provided node and add it as a neighbour without waiting for the reply
+     *
+     * @param n a node to join
+     * @return future completed with whether join request is success or not
+     */
+    public CompletableFuture<Boolean> joinAsync(Node n) {
+        return joinAsync(n, 0);
+    }
+
+    /**
+     * Attempts to join the node, retrying on timeouts
+     *
+     * @param n       a node to join
+     * @param attempt number of attempts done so far
+     * @return future completed with whether join request is success or not
+     */
+    private CompletableFuture<Boolean> joinAsync(Node n, int attempt) {
         IRequest jr = new JoinRequest(self);
-        String reply = null;
-        for (int i = 0; i < this.joinRetries; i++) {
-            LOGGER.info(String.format("Requesting node(%s:%d) to join: %s", n.getIp(), n.getPort(), jr.toString()));
-            handler.sendMessage(n.getIp(), n.getPort(), jr);
-            LOGGER.debug("Waiting for receive message.");
-            try {
-                reply = handler.receiveMessage(JoinResponse.ID, 5);
-                break;
-            } catch (TimeoutException e) {
-                if (i == this.joinRetries - 1) {
-                    LOGGER.debug(String.format("Timeout reached. Unable to connect to node: %s [CANCEL_JOIN]", n.toString()));
-                    LOGGER.info(String.format("Join request failed after attempting %d times", this.joinRetries));
-                    return false;
-                } else
-                    LOGGER.debug(String.format("Timeout reached. Unable to connect to node: %s [RETRYING]", n.toString()));
+        LOGGER.info(String.format("Requesting node(%s:%d) to join: %s", n.getIp(), n.getPort(), jr.toString()));
+        return handler.request(n, jr, JoinResponse.ID, JOIN_TIMEOUT).handle((reply, e) -> {
+            if (e == null)
+                return CompletableFuture.completedFuture(onJoined(n, reply));
+            if (attempt < this.joinRetries - 1) {
+                LOGGER.debug(String.format("Timeout reached. Unable to connect to node: %s [RETRYING]", n.toString()));
+                return joinAsync(n, attempt + 1);
             }
-        }
+            LOGGER.debug(String.format("Timeout reached. Unable to connect to node: %s [CANCEL_JOIN]", n.toString()));
+            LOGGER.info(String.format("Join request failed after attempting %d times", this.joinRetries));
+            return CompletableFuture.completedFuture(false);
+        }).thenCompose(joined -> joined);
+    }
+
+    /**
+     * Adds the node as a neighbour once it replied the join request
+     *
+     * @param n     the joined node
+     * @param reply reply of the node
+     * @return whether join request is success or not
+     */
+    private boolean onJoined(Node n, String reply) {
         LOGGER.info(String.format("Replied to join request: %s", reply));
         JoinResponse rsp = JoinResponse.parse(reply);
+        // Join messages stay as older nodes expect them; binary encoding is offered separately
+        handler.offerBinary(n);
         // Add neighbours if success or not.
         // Not success implies it has already registered that node
         synchronized (neighbours) {
@@ -0,0 +1,23 @@
+package lk.uomcse.fs.model;
+
+import java.util.Collection;
+
+/**
+ * Finds keywords of indexed filenames matching a keyword of a query (see {@link MatchMode})
+ */
+public interface KeywordMatcher {
+    /**
+     * Indexes a new keyword. Called by one writer at a time, concurrently with {@link #expand(String)}.
+     *
+     * @param keyword a keyword seen for the first time
+     */
+    void add(String keyword);
+
+    /**
+     * Gets indexed keywords matching the keyword
+     *
+     * @param keyword a keyword of a query
+     * @return matching keywords
+     */
+    Collection<String> expand(String keyword);
+}
@@ -0,0 +1,65 @@
+package lk.uomcse.fs.model;
+
+/**
+ * How a keyword of a query matches keywords of filenames.
+ * <p>
+ * The mode of a keyword travels with the query as a suffix (ex: "harr*" or "hary~"), hence nodes forwarding or
+ * answering a query apply the mode chosen by the requester without changes to the protocol.
+ */
+public enum MatchMode {
+    // Whole keyword
+    EXACT(""),
+    // Keywords starting with the keyword
+    PREFIX("*"),
+    // Keywords within a small edit distance of the keyword
+    FUZZY("~");
+
+    private final String suffix;
+
+    MatchMode(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * Applies this mode to every keyword of a query
+     *
+     * @param query space separated keywords (with or without modes)
+     * @return query with keywords marked with this mode
+     */
+    public String apply(String query) {
+        StringBuilder sb = new StringBuilder();
+        for (String keyword : FileIndex.tokenize(query)) {
+            String stripped = strip(keyword);
+            if (stripped.isEmpty())
+                continue;
+            if (sb.length() > 0)
+                sb.append(' ');
+            sb.append(stripped).append(suffix);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets mode of a keyword
+     *
+     * @param keyword a keyword of a query
+     * @return mode marked by the keyword suffix
+     */
+    public static MatchMode of(String keyword) {
+        if (keyword.endsWith(PREFIX.suffix))
+            return PREFIX;
+        if (keyword.endsWith(FUZZY.suffix))
+            return FUZZY;
+        return EXACT;
+    }
+
+    /**
+     * Removes mode suffix of a keyword
+     *
+     * @param keyword a keyword of a query
+     * @return keyword without the mode
+     */
+    public static String strip(String keyword) {
+        return keyword.substring(0, keyword.length() - of(keyword).suffix.length());
+    }
+}
@@ -0,0 +1,295 @@
+package lk.uomcse.fs.model;
+
+import lk.uomcse.fs.entity.Packet;
+import lk.uomcse.fs.messages.BinaryCodec;
+import lk.uomcse.fs.udp.OverflowPolicy;
+import lk.uomcse.fs.udp.TransportConfig;
+import lk.uomcse.fs.utils.FramingUtils;
+import org.apache.log4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Routes received packets to bounded queues by message ID.
+ * IDs of existing queues are matched against the raw bytes of the packet, hence dispatching them
+ * does not decode the packet or touch the queue map. A queue is created when its ID is first seen.
+ */
+public class MessageDispatcher {
+    private final static Logger LOGGER = Logger.getLogger(MessageDispatcher.class.getName());
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    // Max queues, bounding queues created for IDs first seen in packets
+    private static final int MAX_INBOXES = 64;
+
+    private final TransportConfig config;
+
+    // Inboxes matched against raw bytes, replaced when an inbox is created (guarded by this)
+    private volatile Inbox[] inboxes;
+
+    // Inboxes of every ID including the ones registered while waiting for a message
+    private final ConcurrentMap<String, Inbox> handle;
+
+    /**
+     * Creates a dispatcher with queues for given IDs
+     *
+     * @param config configurations of inbound queues
+     * @param ids    message IDs known ahead of time (see protocol specs)
+     */
+    public MessageDispatcher(TransportConfig config, String... ids) {
+        this.config = config;
+        this.inboxes = new Inbox[0];
+        this.handle = new ConcurrentHashMap<>();
+        for (String id : ids)
+            inbox(id);
+    }
+
+    /**
+     * Adds the packet to the queue of its message ID, creating the queue if absent.
+     * Packets with a new ID are ignored once there are too many queues. If the queue is full the overflow policy of
+     * the ID applies.
+     * Packets queued for an ID nobody takes from (ex: late replies) are detached from their pooled buffer, hence they
+     * do not hold the receive buffers.
+     *
+     * @param packet a packet containing a single message
+     * @return whether the packet was queued; if not the caller owns the packet
+     */
+    public boolean dispatch(Packet packet) {
+        Inbox inbox = lookup(packet.getData());
+        if (inbox == null)
+            return false;
+        if (inbox.complete(packet))
+            return true;
+        if (!inbox.consumed)
+            packet.detach();
+        return inbox.offer(packet);
+    }
+
+    /**
+     * Expects a message with given ID from a peer. The next such message completes the returned future
+     * instead of being queued. Expectations of the same ID and peer are completed in order.
+     *
+     * @param id   message id
+     * @param peer address the message is expected from
+     * @return future completed with the packet; whoever completes the future owns the packet
+     */
+    public CompletableFuture<Packet> expect(String id, InetSocketAddress peer) {
+        return expect(id, peer, packet -> true);
+    }
+
+    /**
+     * Expects a message with given ID from a peer matching a filter, ex: a reply carrying the id of the request.
+     * The next such message completes the returned future instead of being queued. Expectations of the same ID and
+     * peer accepting the message are completed in order.
+     *
+     * @param id     message id
+     * @param peer   address the message is expected from
+     * @param filter whether a message is the one expected (must not keep or release the packet)
+     * @return future completed with the packet; whoever completes the future owns the packet
+     */
+    public CompletableFuture<Packet> expect(String id, InetSocketAddress peer, Predicate<Packet> filter) {
+        Expectation expectation = new Expectation(filter);
+        Inbox inbox = inbox(id);
+        inbox.expected.computeIfAbsent(peer, k -> new ConcurrentLinkedQueue<>()).add(expectation);
+        // Stop expecting once received, timed out or cancelled
+        expectation.future.whenComplete((packet, e) -> inbox.expected.computeIfPresent(peer, (k, expectations) -> {
+            expectations.remove(expectation);
+            return expectations.isEmpty() ? null : expectations;
+        }));
+        return expectation.future;
+    }
+
+    /**
+     * Gets the queue of packets with given ID to take packets from, creating it if absent
+     *
+     * @param id message id
+     * @return queue of packets
+     */
+    public BlockingQueue<Packet> queue(String id) {
+        Inbox inbox = inbox(id);
+        inbox.consumed = true;
+        return inbox.packets;
+    }
+
+    /**
+     * Sets the function replying senders of packets rejected by {@link OverflowPolicy#REJECT}
+     *
+     * @param id      message id
+     * @param handler function called with each rejected packet, before the packet is released
+     */
+    public void setRejectHandler(String id, Consumer<Packet> handler) {
+        inbox(id).rejectHandler = handler;
+    }
+
+    /**
+     * Gets number of packets of an ID dropped or rejected due to a full queue
+     *
+     * @param id message id
+     * @return dropped packet count
+     */
+    public long getDroppedCount(String id) {
+        Inbox inbox = handle.get(id);
+        return inbox == null ? 0 : inbox.dropped.get();
+    }
+
+    /**
+     * Gets number of packets dropped or rejected due to full queues
+     *
+     * @return dropped packet count of all IDs
+     */
+    public long getDroppedCount() {
+        return handle.values().stream().mapToLong(inbox -> inbox.dropped.get()).sum();
+    }
+
+    private Inbox inbox(String id) {
+        Inbox inbox = handle.get(id);
+        if (inbox != null)
+            return inbox;
+        synchronized (this) {
+            inbox = handle.get(id);
+            if (inbox != null)
+                return inbox;
+            inbox = new Inbox(id, config.getQueueCapacity(id), config.getOverflowPolicy(id));
+            Inbox[] grown = Arrays.copyOf(inboxes, inboxes.length + 1);
+            grown[inboxes.length] = inbox;
+            handle.put(id, inbox);
+            inboxes = grown;
+            return inbox;
+        }
+    }
+
+    /**
+     * Finds the inbox of the message ID, i.e. the second space separated token of a text message
+     * or the type code of a binary message
+     *
+     * @param data content of the message
+     * @return inbox of the message or null if the message has no ID or there are too many inboxes
+     */
+    private Inbox lookup(ByteBuffer data) {
+        if (BinaryCodec.isBinary(data)) {
+            String id = BinaryCodec.idOf(data);
+            return id == null ? null : inbox(id);
+        }
+        int start = FramingUtils.idStart(data);
+        int end = FramingUtils.tokenEnd(data, start);
+        if (start >= end)
+            return null;
+        Inbox[] known = inboxes;
+        for (Inbox inbox : known) {
+            if (FramingUtils.tokenEquals(inbox.idBytes, data, start, end))
+                return inbox;
+        }
+        if (known.length >= MAX_INBOXES)
+            return null;
+        // First packet of the ID, later ones match the raw bytes of the new inbox
+        byte[] id = new byte[end - start];
+        for (int i = start; i < end; i++)
+            id[i - start] = data.get(i);
+        return inbox(new String(id, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Bounded queue of a message ID
+     */
+    private static class Inbox {
+        private final String id;
+
+        private final byte[] idBytes;
+
+        private final BlockingQueue<Packet> packets;
+
+        private final OverflowPolicy policy;
+
+        private final AtomicLong dropped;
+
+        private volatile Consumer<Packet> rejectHandler;
+
+        // Whether packets are taken from the queue
+        private volatile boolean consumed;
+
+        // Futures waiting for a message of this ID by peer address
+        private final ConcurrentMap<InetSocketAddress, Queue<Expectation>> expected;
+
+        private Inbox(String id, int capacity, OverflowPolicy policy) {
+            this.id = id;
+            this.idBytes = id.getBytes(StandardCharsets.US_ASCII);
+            this.packets = new LinkedBlockingQueue<>(capacity);
+            this.policy = policy;
+            this.dropped = new AtomicLong();
+            this.expected = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * Completes the first future expecting the packet from its source
+         *
+         * @param packet received packet
+         * @return whether a future took the packet
+         */
+        private boolean complete(Packet packet) {
+            if (expected.isEmpty())
+                return false;
+            Queue<Expectation> expectations = expected.get(packet.getSourceAddress());
+            if (expectations == null)
+                return false;
+            for (Iterator<Expectation> iterator = expectations.iterator(); iterator.hasNext(); ) {
+                Expectation expectation = iterator.next();
+                if (expectation.future.isDone()) {
+                    iterator.remove();
+                } else if (expectation.filter.test(packet) && expectation.future.complete(packet)) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean offer(Packet packet) {
+            if (packets.offer(packet))
+                return true;
+            dropped.incrementAndGet();
+            LOGGER.debug(String.format("Queue of %s is full. Applying %s.", id, policy));
+            switch (policy) {
+                case DROP_OLDEST:
+                    do {
+                        Packet oldest = packets.poll();
+                        if (oldest != null)
+                            oldest.release();
+                    } while (!packets.offer(packet));
+                    return true;
+                case REJECT:
+                    Consumer<Packet> handler = rejectHandler;
+                    if (handler != null)
+                        try {
+                            handler.accept(packet);
+                        } catch (RuntimeException e) {
+                            LOGGER.debug(String.format("Failed to reply rejected %s.", id), e);
+                        }
+                    return false;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * A future waiting for a message accepted by its filter
+     */
+    private static class Expectation {
+        private final CompletableFuture<Packet> future = new CompletableFuture<>();
+
+        private final Predicate<Packet> filter;
+
+        private Expectation(Predicate<Packet> filter) {
+            this.filter = filter;
+        }
+    }
+}
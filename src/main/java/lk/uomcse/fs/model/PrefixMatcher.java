@@ -0,0 +1,22 @@
+package lk.uomcse.fs.model;
+
+import java.util.Collection;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Matches keywords starting with the keyword using a sorted set of keywords
+ */
+public class PrefixMatcher implements KeywordMatcher {
+    private final NavigableSet<String> keywords = new ConcurrentSkipListSet<>();
+
+    @Override
+    public void add(String keyword) {
+        keywords.add(keyword);
+    }
+
+    @Override
+    public Collection<String> expand(String keyword) {
+        return keywords.subSet(keyword, true, keyword + Character.MAX_VALUE, true);
+    }
+}
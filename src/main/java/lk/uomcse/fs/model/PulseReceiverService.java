@@ -3,6 +3,7 @@ package lk.uomcse.fs.model;
 import lk.uomcse.fs.entity.Node;
 import lk.uomcse.fs.entity.Packet;
 import lk.uomcse.fs.messages.HeartbeatPulse;
+import lk.uomcse.fs.messages.HeartbeatPulseView;
 import org.apache.log4j.Logger;
 
 import java.net.InetAddress;
@@ -34,6 +35,11 @@ public class PulseReceiverService extends Thread {
      */
     private RequestHandler requestHandler;
 
+    /**
+     * Reusable view of received pulses.
+     */
+    private final HeartbeatPulseView pulse = new HeartbeatPulseView();
+
 
     /**
      * Represents whether the service is up or down.
@@ -66,12 +72,19 @@ public class PulseReceiverService extends Thread {
      */
     private void receivePulses() {
         Packet packet = this.requestHandler.receivePacket(HeartbeatPulse.ID);
+        boolean valid = pulse.wrap(packet.getData());
+        packet.release();
+        if (!valid)
+            return;
         try {
-            InetAddress packetAddress = InetAddress.getByName(packet.getReceiverNode().getIp());
+            InetAddress packetAddress = packet.getSourceAddress().getAddress();
+            int packetPort = packet.getSourceAddress().getPort();
             for (final ListIterator<Node> iterator = this.neighbors.listIterator(); iterator.hasNext(); ) {
                 final Node neighbor = iterator.next();
-                InetAddress addressNeighbor = InetAddress.getByName(neighbor.getIp());
-                if (addressNeighbor.equals(packetAddress) && neighbor.getPort() == packet.getReceiverNode().getPort()) {
+                if (neighbor.getPort() != packetPort)
+                    continue;
+                InetAddress addressNeighbor = this.requestHandler.resolve(neighbor).getAddress();
+                if (addressNeighbor.equals(packetAddress)) {
                     neighbor.addPulseResponse(packet.getReceivedTime());
                     iterator.set(neighbor);
                 }
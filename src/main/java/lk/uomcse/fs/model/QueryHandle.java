@@ -0,0 +1,242 @@
+package lk.uomcse.fs.model;
+
+import lk.uomcse.fs.entity.Node;
+import lk.uomcse.fs.messages.SearchResponse;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A search started by this node. Collects results replied for the query until its deadline or until cancelled,
+ * and streams them to subscribed listeners.
+ */
+public class QueryHandle {
+    private static final Logger LOGGER = Logger.getLogger(QueryHandle.class.getName());
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private final String id;
+
+    private final String query;
+
+    private final long deadline;
+
+    private final int minResults;
+
+    private final boolean stopWhenSatisfied;
+
+    private final ConcurrentMap<Node, List<String>> results;
+
+    private final CompletableFuture<Map<Node, List<String>>> completion;
+
+    // Set once before completion (guarded by this)
+    private QueryOutcome outcome;
+
+    // Accepted responses in order of arrival (guarded by this)
+    private final List<SearchResponse> responses;
+
+    // Guarded by this
+    private final List<QueryListener> listeners;
+
+    // Hops of the request sent for each query id of this search
+    private final Map<String, Integer> issued;
+
+    // Query ids of all requests of this search
+    private final Set<String> queryIds;
+
+    /**
+     * Constructor
+     *
+     * @param id                query id sent with the search request
+     * @param query             searched query
+     * @param deadline          time in milliseconds (see {@link System#currentTimeMillis()}) results are accepted until
+     * @param minResults        number of nodes with results that satisfies the search
+     * @param stopWhenSatisfied whether to complete once min results are received
+     */
+    QueryHandle(String id, String query, long deadline, int minResults, boolean stopWhenSatisfied) {
+        this.id = id;
+        this.query = query;
+        this.deadline = deadline;
+        this.minResults = minResults;
+        this.stopWhenSatisfied = stopWhenSatisfied;
+        this.results = new ConcurrentHashMap<>();
+        this.completion = new CompletableFuture<>();
+        this.responses = new ArrayList<>();
+        this.listeners = new ArrayList<>();
+        this.issued = new ConcurrentHashMap<>();
+        this.queryIds = ConcurrentHashMap.newKeySet();
+    }
+
+    /**
+     * Records a query id used by requests of this search
+     *
+     * @param queryId id of the query sent
+     */
+    void addQueryId(String queryId) {
+        queryIds.add(queryId);
+    }
+
+    /**
+     * Returns query ids used by requests of this search
+     *
+     * @return query ids
+     */
+    public Set<String> getQueryIds() {
+        return Collections.unmodifiableSet(queryIds);
+    }
+
+    /**
+     * Records a request sent for this search. A search may send requests with several query ids
+     * (ex: one per ring of an expanding ring search).
+     *
+     * @param queryId id of the query sent
+     * @param hops    hops of the request when sent
+     */
+    void issue(String queryId, int hops) {
+        issued.put(queryId, hops);
+    }
+
+    /**
+     * Gets distance of the node replying a request of this search
+     *
+     * @param queryId id of the query replied
+     * @param hops    hops of the response
+     * @return distance in hops or -1 if the query id is not of this search
+     */
+    int distance(String queryId, int hops) {
+        Integer sent = issued.get(queryId);
+        return sent == null ? -1 : hops - sent;
+    }
+
+    /**
+     * Adds files found in a node and passes them to listeners. Only the first reply of a node is kept.
+     *
+     * @param response response of a node having matching files
+     * @return whether the result is accepted
+     */
+    synchronized boolean addResponse(SearchResponse response) {
+        if (completion.isDone())
+            return false;
+        if (results.putIfAbsent(response.getNode(), response.getFilenames()) != null)
+            return false;
+        responses.add(response);
+        for (QueryListener listener : listeners) {
+            try {
+                listener.onResponse(this, response);
+            } catch (RuntimeException e) {
+                LOGGER.error(String.format("Query listener failed on response: %s", response.toString()), e);
+            }
+        }
+        if (stopWhenSatisfied && isSatisfied())
+            complete(QueryOutcome.SATISFIED);
+        return true;
+    }
+
+    /**
+     * Stops accepting results
+     *
+     * @param outcome why the search stops
+     */
+    synchronized void complete(QueryOutcome outcome) {
+        if (completion.isDone())
+            return;
+        this.outcome = outcome;
+        completion.complete(getResults());
+        for (QueryListener listener : listeners) {
+            try {
+                listener.onComplete(this);
+            } catch (RuntimeException e) {
+                LOGGER.error("Query listener failed on completion.", e);
+            }
+        }
+    }
+
+    /**
+     * Streams results to the listener, starting with the results received so far
+     *
+     * @param listener receiver of the results
+     */
+    public synchronized void subscribe(QueryListener listener) {
+        for (SearchResponse response : responses)
+            listener.onResponse(this, response);
+        if (completion.isDone())
+            listener.onComplete(this);
+        else
+            listeners.add(listener);
+    }
+
+    /**
+     * Stops streaming results to the listener
+     *
+     * @param listener receiver of the results
+     */
+    public synchronized void unsubscribe(QueryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops the search before its deadline
+     */
+    public void cancel() {
+        complete(QueryOutcome.CANCELLED);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Returns results received so far
+     *
+     * @return map of nodes with respective files
+     */
+    public Map<Node, List<String>> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Returns future completed with all results at the deadline or when cancelled
+     *
+     * @return completion of the search
+     */
+    public CompletableFuture<Map<Node, List<String>>> getCompletion() {
+        return completion;
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    /**
+     * Why the search completed
+     *
+     * @return outcome of the search or null if not completed
+     */
+    public synchronized QueryOutcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Whether enough nodes replied results
+     *
+     * @return whether the search is satisfied
+     */
+    public boolean isSatisfied() {
+        return results.size() >= minResults;
+    }
+}
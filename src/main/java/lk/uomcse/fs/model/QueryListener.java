@@ -0,0 +1,25 @@
+package lk.uomcse.fs.model;
+
+import lk.uomcse.fs.messages.SearchResponse;
+
+/**
+ * Receives results of a search as they arrive (see {@link QueryHandle#subscribe(QueryListener)}).
+ * Called on the thread handling replies, hence must not block.
+ */
+public interface QueryListener {
+    /**
+     * Called for each accepted response of the search
+     *
+     * @param query    the search
+     * @param response response of a node having matching files
+     */
+    void onResponse(QueryHandle query, SearchResponse response);
+
+    /**
+     * Called once the search stops accepting results
+     *
+     * @param query the search
+     */
+    default void onComplete(QueryHandle query) {
+    }
+}
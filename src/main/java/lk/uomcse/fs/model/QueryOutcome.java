@@ -0,0 +1,13 @@
+package lk.uomcse.fs.model;
+
+/**
+ * Why a search started by this node stopped accepting results
+ */
+public enum QueryOutcome {
+    // Enough nodes replied results, or the search was answered by this node
+    SATISFIED,
+    // Stopped by the user before its deadline
+    CANCELLED,
+    // Deadline reached
+    EXPIRED
+}
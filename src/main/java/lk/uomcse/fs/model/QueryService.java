@@ -1,17 +1,17 @@
 package lk.uomcse.fs.model;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.Queues;
 import lk.uomcse.fs.entity.Node;
 import lk.uomcse.fs.entity.Packet;
-import lk.uomcse.fs.messages.SearchRequest;
-import lk.uomcse.fs.messages.SearchResponse;
+import lk.uomcse.fs.messages.*;
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
 import org.apache.log4j.Logger;
-import com.google.common.collect.EvictingQueue;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Initiates search requests and listens for replies
@@ -22,9 +22,10 @@ public class QueryService {
 
     private static final int TTL = 5;
 
-    private static final int ID_STORE_QUERY_LENGTH = 50;
+    // Seconds queries are remembered to suppress duplicates
+    private static final int DUPLICATE_WINDOW = 60;
 
-    private static final int ID_STORE_INDEX_SIZE = 10;
+    private static final int DUPLICATE_BUCKETS = 6;
 
     private static final int MAX_NODES = 5;
 
@@ -34,6 +35,34 @@ public class QueryService {
 
     private static final int MAX_NODE_QUEUE_LENGTH = 10;
 
+    // Fractions of recent hits the first rings of an expanding ring search should cover
+    private static final double NEAR_HITS = 0.5;
+
+    private static final double FAR_HITS = 0.9;
+
+    // Rings used until hits are recorded
+    private static final int DEFAULT_NEAR_RING = 1;
+
+    private static final int DEFAULT_FAR_RING = 3;
+
+    private static final int HOP_STATISTICS_SIZE = 64;
+
+    // Max hops of a random walker
+    private static final int WALK_TTL = 32;
+
+    // Walkers ask the origin whether to continue every this many hops
+    private static final int WALK_CHECK_INTERVAL = 4;
+
+    private static final int WALK_CHECK_TIMEOUT = 5;
+
+    // Max queries of which results are cached
+    private static final int RESULT_CACHE_SIZE = 100;
+
+    // Seconds results and queries without results are cached
+    private static final int RESULT_TTL = 60;
+
+    private static final int MISS_TTL = 10;
+
     // -----------------------------------------------------------------------------------------------------------------
 
     private final CacheService cacheService;
@@ -42,23 +71,39 @@ public class QueryService {
 
     private final Node self;
 
-    private final List<String> filenames; //  Split file names which are in lowercase
+    private final FileIndex filenames; //  File names which are in lowercase
 
     private final List<Node> neighbours;
 
-    private final ConcurrentMap<String, Queue<String>> queryIdStore;
+    private final DuplicateFilter duplicates;
+
+    // Results of recent own searches, to serve repeated queries without the network
+    private final ResultCache results;
+
+    // Cancelled queries, to forward each cancel once
+    private final DuplicateFilter cancels;
 
     private final Thread handleRepliesThread;
 
     private final Thread handleQueriesThread;
 
-    private final ConcurrentHashMap<Node, List<String>> results;
+    private final Thread handleWalksThread;
 
-    // -----------------------------------------------------------------------------------------------------------------
+    private final Thread handleWalkChecksThread;
+
+    private final Thread handleCancelsThread;
 
-    private String currentQuery;
+    // Searches in progress by query id
+    private final ConcurrentMap<String, QueryHandle> queries;
+
+    private final AtomicInteger nextQueryId;
+
+    // Distances of recent hits of own searches
+    private final HopStatistics hopStatistics;
+
+    // -----------------------------------------------------------------------------------------------------------------
 
-    private int currentQueryID;
+    private volatile QueryHandle currentQuery;
 
     private boolean running;
 
@@ -67,10 +112,10 @@ public class QueryService {
      *
      * @param handler    a request handler
      * @param self       self node (me)
-     * @param filenames  reference to list of filenames in this node
+     * @param filenames  reference to index of filenames in this node
      * @param neighbours reference to list of neighbours
      */
-    public QueryService(RequestHandler handler, Node self, List<String> filenames, List<Node> neighbours) {
+    public QueryService(RequestHandler handler, Node self, FileIndex filenames, List<Node> neighbours) {
         this.handler = handler;
         this.self = self;
         this.filenames = filenames;
@@ -78,12 +123,18 @@ public class QueryService {
         //  Cache of nodes
         this.cacheService = new CacheService(MAX_INDEX_SIZE, MAX_NODE_QUEUE_LENGTH);
         this.running = false;
-        this.results = new ConcurrentHashMap<>();
+        this.queries = new ConcurrentHashMap<>();
+        this.nextQueryId = new AtomicInteger();
+        this.hopStatistics = new HopStatistics(HOP_STATISTICS_SIZE);
         this.handleRepliesThread = new Thread(this::runHandleReplies);
         this.handleQueriesThread = new Thread(this::runHandleQueries);
-        this.queryIdStore = CacheBuilder.newBuilder()
-                .maximumSize(ID_STORE_INDEX_SIZE)
-                .<String, Queue<String>>build().asMap();
+        this.handleWalksThread = new Thread(this::runHandleWalks);
+        this.handleWalkChecksThread = new Thread(this::runHandleWalkChecks);
+        this.handleCancelsThread = new Thread(this::runHandleCancels);
+        this.duplicates = new DuplicateFilter(DUPLICATE_WINDOW, DUPLICATE_BUCKETS, TimeUnit.SECONDS);
+        this.cancels = new DuplicateFilter(DUPLICATE_WINDOW, DUPLICATE_BUCKETS, TimeUnit.SECONDS);
+        this.results = new ResultCache(RESULT_CACHE_SIZE, RESULT_TTL, MISS_TTL, TimeUnit.SECONDS);
+        this.handler.setRejectHandler(SearchRequest.ID, this::rejectQuery);
     }
 
     /**
@@ -93,99 +144,483 @@ public class QueryService {
         running = true;
         this.handleQueriesThread.start();
         this.handleRepliesThread.start();
+        this.handleWalksThread.start();
+        this.handleWalkChecksThread.start();
+        this.handleCancelsThread.start();
     }
 
     /**
      * Thread to handle replies
      */
     private void runHandleReplies() {
+        SearchResponseView response = new SearchResponseView();
         while (running) {
-            String responseStr = this.handler.receiveMessage(SearchResponse.ID);
-            SearchResponse response = SearchResponse.parse(responseStr);
-            if (Integer.parseInt(response.getQueryID()) == currentQueryID) {
-                this.updateResults(response.getNode(), response.getFilenames());
-                LOGGER.info(String.format("Response received matching self query: %s", response.toString()));
-            } else {
-                LOGGER.info(String.format("Response received matching old query: %s", response.toString()));
+            Packet packet = this.handler.receivePacket(SearchResponse.ID);
+            try {
+                if (!response.wrap(packet.getData())) {
+                    LOGGER.warn(String.format("Invalid response received: %s", response.toString()));
+                } else if (!response.isSuccess()) {
+                    LOGGER.info(String.format("Response received with error code: %s", response.toString()));
+                } else {
+                    QueryHandle query = queries.get(response.getQueryId());
+                    if (query != null) {
+                        int distance = query.distance(response.getQueryId(), response.getHops());
+                        if (distance > 0)
+                            hopStatistics.record(distance);
+                        this.updateResults(query, new SearchResponse(response.getQueryId(), response.getFileCount(),
+                                response.getNode(), response.getHops(), response.getFilenames()));
+                        LOGGER.info(String.format("Response received matching self query: %s", response.toString()));
+                    } else {
+                        LOGGER.info(String.format("Response received matching old query: %s", response.toString()));
+                    }
+                }
+            } catch (InvalidFormatException e) {
+                LOGGER.warn(String.format("Invalid response received: %s", e.getMessage()));
+            } finally {
+                packet.release();
             }
         }
     }
 
     /**
-     * Sets self search query
+     * Starts a search matching keywords in given mode
      *
      * @param query query
+     * @param mode  how keywords of the query match keywords of filenames
+     * @return handle of the search
+     */
+    public QueryHandle search(String query, MatchMode mode) {
+        return search(query, new SearchOptions.Builder().setMatchMode(mode).build());
+    }
+
+    /**
+     * Starts a search. Keywords match in the mode marked by their suffix (see {@link MatchMode}).
+     *
+     * @param query query
+     * @return handle of the search
+     */
+    public QueryHandle search(String query) {
+        return search(query, SearchOptions.defaults());
+    }
+
+    /**
+     * Starts a search. Several searches may be in progress, each collecting its own results.
+     *
+     * @param query   query
+     * @param options options of the search
+     * @return handle of the search
+     */
+    public QueryHandle search(String query, SearchOptions options) {
+        if (options.getMatchMode() != null)
+            query = options.getMatchMode().apply(query);
+        int timeout = options.getTimeout();
+        String id = String.valueOf(nextQueryId.incrementAndGet());
+        QueryHandle handle = new QueryHandle(id, query, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout),
+                options.getMinResults(), options.isStopWhenSatisfied());
+        // Stop requests in flight when the search is satisfied or abandoned before its deadline
+        handle.getCompletion().whenComplete((found, e) -> {
+            if (handle.getOutcome() != QueryOutcome.EXPIRED)
+                cancelRequests(handle);
+            else if (found.isEmpty())
+                results.addMiss(handle.getQuery());
+        });
+        handler.schedule(() -> handle.complete(QueryOutcome.EXPIRED), timeout, TimeUnit.SECONDS);
+        currentQuery = handle;
+        List<String> matches = searchFiles(query);
+        if (matches.size() > 0) {
+            this.updateResults(handle, new SearchResponse(id, matches.size(), self, 0, matches));
+            return handle;
+        }
+        Map<Node, List<String>> cached = results.get(query);
+        if (cached != null) {
+            cached.forEach((node, files) -> handle.addResponse(new SearchResponse(id, files.size(), node, 0, files)));
+            handle.complete(QueryOutcome.SATISFIED);
+            LOGGER.debug(String.format("Search %s served from cache", query));
+            return handle;
+        }
+        if (options.getStrategy() == SearchStrategy.RANDOM_WALK) {
+            walk(handle, options.getWalkers());
+            return handle;
+        }
+        int[] rings = options.getStrategy() == SearchStrategy.EXPANDING_RING ? rings() : new int[]{TTL};
+        issue(handle, id, rings[0]);
+        if (rings.length > 1)
+            expand(handle, options, rings, 1);
+        return handle;
+    }
+
+    /**
+     * Sends a request of the search to reach nodes up to given distance
+     *
+     * @param handle  the search
+     * @param id      query id of the request
+     * @param radius  max hops from this node
+     */
+    private void issue(QueryHandle handle, String id, int radius) {
+        register(handle, id);
+        // Nodes forward requests until hops reach the TTL, hence starting from a higher hop count limits the reach
+        VisitedSet visited = new VisitedSet();
+        List<Node> targets = selectTargets(handle.getQuery(), null, visited);
+        SearchRequest request = new SearchRequest(id, self, handle.getQuery(), TTL - radius + 1, visited);
+        handle.issue(id, request.getHops());
+        forward(request, targets);
+    }
+
+    /**
+     * Routes replies of the query id to the search until it completes
+     *
+     * @param handle the search
+     * @param id     query id of a request of the search
+     */
+    private void register(QueryHandle handle, String id) {
+        handle.addQueryId(id);
+        queries.put(id, handle);
+        handle.getCompletion().whenComplete((results, e) -> queries.remove(id, handle));
+        // Do not serve own query when neighbours forward it back
+        duplicates.add(self.getIp() + ":" + self.getPort(), id);
+    }
+
+    /**
+     * Asks nodes to stop forwarding requests of the search
+     *
+     * @param handle the search
+     */
+    private void cancelRequests(QueryHandle handle) {
+        List<Node> targets;
+        synchronized (neighbours) {
+            targets = new ArrayList<>(neighbours);
+        }
+        for (String id : handle.getQueryIds()) {
+            cancels.add(self.getIp() + ":" + self.getPort(), id);
+            SearchCancel cancel = new SearchCancel(id, self, 1);
+            targets.forEach(node -> this.handler.sendMessage(node, cancel));
+        }
+        LOGGER.debug(String.format("Cancelled search %s", handle.getQuery()));
+    }
+
+    /**
+     * Thread to handle cancelled queries.
+     * Nodes remember the query as served so that copies arriving later are dropped. Nodes the query already passed
+     * forward the cancel towards nodes the query may be heading to.
+     */
+    private void runHandleCancels() {
+        while (running) {
+            Packet packet = this.handler.receivePacket(SearchCancel.ID);
+            try {
+                SearchCancel cancel = SearchCancel.parse(packet.getMessage());
+                String origin = cancel.getNode().getIp() + ":" + cancel.getNode().getPort();
+                if (!cancels.add(origin, cancel.getQueryId()))
+                    continue;
+                boolean seen = !duplicates.add(origin, cancel.getQueryId());
+                if (!seen || cancel.getHops() >= TTL)
+                    continue;
+                Node previous = packet.getReceiverNode();
+                List<Node> targets;
+                synchronized (neighbours) {
+                    targets = new ArrayList<>(neighbours);
+                }
+                SearchCancel next = cancel.next();
+                for (Node node : targets) {
+                    if (!node.equals(previous))
+                        this.handler.sendMessage(node, next);
+                }
+            } catch (InvalidFormatException e) {
+                LOGGER.warn(String.format("Invalid cancel received: %s", e.getMessage()));
+            } finally {
+                packet.release();
+            }
+        }
+    }
+
+    /**
+     * Sends walkers of the search to random neighbours
+     *
+     * @param handle  the search
+     * @param walkers number of walkers
+     */
+    private void walk(QueryHandle handle, int walkers) {
+        register(handle, handle.getId());
+        List<Node> candidates;
+        synchronized (neighbours) {
+            candidates = new ArrayList<>(neighbours);
+        }
+        if (candidates.isEmpty())
+            return;
+        Collections.shuffle(candidates);
+        WalkRequest walker = new WalkRequest(handle.getId(), self, handle.getQuery(), 1);
+        // More walkers than neighbours start from the same neighbours
+        for (int i = 0; i < walkers; i++)
+            this.handler.sendMessage(candidates.get(i % candidates.size()), walker);
+        LOGGER.info(String.format("Sent %d walkers for query %s", walkers, handle.getQuery()));
+    }
+
+    /**
+     * Thread to handle random walkers
      */
-    public void search(String query) {
-        results.clear();
-        currentQuery = query;
-        currentQueryID += 1;
-        SearchRequest request = new SearchRequest(String.valueOf(currentQueryID), self, query, 0);
-        List<String> matches = searchUtils(request, null);
-        if (matches.size() > 0)
-            this.updateResults(self, matches);
+    private void runHandleWalks() {
+        while (running) {
+            Packet packet = this.handler.receivePacket(WalkRequest.ID);
+            try {
+                WalkRequest walker = WalkRequest.parse(packet.getMessage());
+                // Reply once per query even if several walkers pass by
+                if (duplicates.add(walker.getNode().getIp() + ":" + walker.getNode().getPort(), walker.getQueryId())) {
+                    List<String> matches = searchFiles(walker.getFilename());
+                    if (matches.size() > 0) {
+                        SearchResponse response = new SearchResponse(walker.getQueryId(), matches.size(), this.self, walker.getHops() + 1, matches);
+                        this.handler.sendMessage(walker.getNode(), response);
+                        LOGGER.info(String.format("Response sent %s", response.toString()));
+                    }
+                }
+                if (walker.getHops() >= WALK_TTL
+                        || cancels.contains(walker.getNode().getIp() + ":" + walker.getNode().getPort(), walker.getQueryId()))
+                    continue;
+                Node previous = packet.getReceiverNode();
+                if (walker.getHops() % WALK_CHECK_INTERVAL != 0) {
+                    step(walker, previous);
+                    continue;
+                }
+                // Continue once the origin confirms it still needs results. Checks of other walkers may be pending
+                // towards the same origin, hence only the reply for this query is taken.
+                String queryId = walker.getQueryId();
+                this.handler.request(walker.getNode(), new WalkCheck(queryId, self), WalkCheckResponse.ID, WALK_CHECK_TIMEOUT,
+                        reply -> isReplyOf(reply, queryId))
+                        .thenAccept(reply -> {
+                            if (WalkCheckResponse.parse(reply).isSuccess())
+                                step(walker, previous);
+                            else
+                                LOGGER.debug(String.format("Walker of query %s stopped by the origin", walker.getQueryId()));
+                        }).exceptionally(e -> {
+                            LOGGER.debug(String.format("Walker of query %s stopped: %s", walker.getQueryId(), e.getMessage()));
+                            return null;
+                        });
+            } catch (InvalidFormatException e) {
+                LOGGER.warn(String.format("Invalid walker received: %s", e.getMessage()));
+            } finally {
+                packet.release();
+            }
+        }
+    }
+
+    /**
+     * Moves the walker to a random neighbour, avoiding the node it came from unless there is no other
+     *
+     * @param walker   the walker
+     * @param previous node the walker came from
+     */
+    private void step(WalkRequest walker, Node previous) {
+        Node next;
+        synchronized (neighbours) {
+            if (neighbours.isEmpty())
+                return;
+            int size = neighbours.size();
+            int index = ThreadLocalRandom.current().nextInt(size);
+            next = neighbours.get(index);
+            if (next.equals(previous) && size > 1)
+                next = neighbours.get((index + 1 + ThreadLocalRandom.current().nextInt(size - 1)) % size);
+        }
+        this.handler.sendMessage(next, walker.next());
+    }
+
+    /**
+     * Whether a walk check response is of given query
+     *
+     * @param reply   a walk check response
+     * @param queryId id of the query
+     * @return whether the response is of the query
+     */
+    private static boolean isReplyOf(Packet reply, String queryId) {
+        try {
+            return WalkCheckResponse.parse(reply.getMessage()).getQueryId().equals(queryId);
+        } catch (InvalidFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Thread to answer walkers of own searches asking whether to continue
+     */
+    private void runHandleWalkChecks() {
+        while (running) {
+            String msg = this.handler.receiveMessage(WalkCheck.ID);
+            try {
+                WalkCheck check = WalkCheck.parse(msg);
+                QueryHandle query = queries.get(check.getQueryId());
+                boolean proceed = query != null && !query.isDone() && !query.isSatisfied();
+                this.handler.sendMessage(check.getNode(), new WalkCheckResponse(check.getQueryId(), proceed));
+            } catch (InvalidFormatException e) {
+                LOGGER.warn(String.format("Invalid walk check received: %s", e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Reaches the next ring of an expanding ring search once the previous one had time to reply,
+     * unless the search is satisfied
+     *
+     * @param handle  the search
+     * @param options options of the search
+     * @param rings   radius of each ring
+     * @param ring    index of the next ring
+     */
+    private void expand(QueryHandle handle, SearchOptions options, int[] rings, int ring) {
+        handler.schedule(() -> {
+            if (handle.isDone() || handle.isSatisfied())
+                return;
+            LOGGER.debug(String.format("Expanding search %s to %d hops", handle.getQuery(), rings[ring]));
+            // Nodes of inner rings drop a query id already seen, hence each ring gets a new one
+            issue(handle, String.valueOf(nextQueryId.incrementAndGet()), rings[ring]);
+            if (ring + 1 < rings.length)
+                expand(handle, options, rings, ring + 1);
+        }, options.getRingTimeout(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets radius of rings of an expanding ring search. The first rings cover the distances most recent hits were
+     * found at, the last one reaches as far as a flood.
+     *
+     * @return increasing radius of rings
+     */
+    private int[] rings() {
+        int near = hopStatistics.percentile(NEAR_HITS);
+        int far = hopStatistics.percentile(FAR_HITS);
+        if (near < 0) {
+            near = DEFAULT_NEAR_RING;
+            far = DEFAULT_FAR_RING;
+        }
+        SortedSet<Integer> rings = new TreeSet<>();
+        rings.add(Math.max(1, Math.min(TTL, near)));
+        rings.add(Math.max(1, Math.min(TTL, far)));
+        rings.add(TTL);
+        return rings.stream().mapToInt(Integer::intValue).toArray();
     }
 
     /**
      * Thread to handle queries
      */
     private void runHandleQueries() {
+        SearchRequestView request = new SearchRequestView();
         while (running) {
             Packet packet = this.handler.receivePacket(SearchRequest.ID);
-            String requestStr = packet.getMessage();
-            LOGGER.info(String.format("Request received %s", requestStr));
-            SearchRequest request = SearchRequest.parse(requestStr);
-            //check for already served queries
-            if (!isNewQuery(request)) {
-                continue;
-            }
-            List<String> matches = searchUtils(request, packet.getReceiverNode());
-            if (matches.size() > 0) {
-                SearchResponse response = new SearchResponse(request.getQueryId(), matches.size(), this.self, request.getHops() + 1, matches);
-                this.handler.sendMessage(request.getNode().getIp(), request.getNode().getPort(), response);
-                LOGGER.info(String.format("Response sent %s", response.toString()));
+            try {
+                if (!request.wrap(packet.getData())) {
+                    LOGGER.warn(String.format("Invalid request received: %s", request.toString()));
+                    continue;
+                }
+                if (LOGGER.isInfoEnabled())
+                    LOGGER.info(String.format("Request received %s", request.toString()));
+                //check for already served queries
+                if (!duplicates.add(request.getIp() + ":" + request.getPort(), request.getQueryId())) {
+                    continue;
+                }
+                String query = request.getFilename();
+                List<String> matches = searchFiles(query);
+                if (matches.size() > 0) {
+                    SearchResponse response = new SearchResponse(request.getQueryId(), matches.size(), this.self, request.getHops() + 1, matches);
+                    this.handler.sendMessage(request.getNode(), response);
+                    LOGGER.info(String.format("Response sent %s", response.toString()));
+                } else if (!replyFromCache(request) && request.getHops() < TTL) {
+                    // Requests of older nodes carry no visited set
+                    VisitedSet visited = request.getVisited();
+                    if (visited == null)
+                        visited = new VisitedSet();
+                    List<Node> targets = selectTargets(query, packet.getReceiverNode(), visited);
+                    if (!targets.isEmpty())
+                        forward(request.forward(visited), targets);
+                }
+            } catch (InvalidFormatException e) {
+                LOGGER.warn(String.format("Invalid request received: %s", e.getMessage()));
+            } finally {
+                packet.release();
             }
         }
     }
 
     /**
-     * Initialize a search query
+     * Replies a request with results of a recent search of this node, on behalf of the nodes having the files.
+     * A recent search of this node finding nothing does not answer the request: it started elsewhere in the overlay
+     * with its own hop limit, hence the request is still forwarded.
      *
-     * @return list of filenames
+     * @param request a search request not matching files of this node
+     * @return whether the request was answered, hence need not be forwarded
      */
-    private List<String> searchUtils(SearchRequest request, Node ignore) {
-        String query = request.getFilename();
-        List<String> matches = searchFiles(query);
-        if (matches.size() > 0) {
-            return matches;
-        }
-        if (request.getHops() < TTL) {
-            List<Node> bestNodes = selectBestNodes(query);
-            // TODO: Do this in selectBestNodes section
-            // Ignore nodes indicated by ignore args
-            if (ignore != null)
-                bestNodes.remove(ignore);
-            request.incrementHops();
-            bestNodes.forEach(node -> {
-                this.handler.sendMessage(node.getIp(), node.getPort(), request);
-                LOGGER.info(String.format("Sending query %s to neighbour %s ", request.toString(), node.toString()));
-            });
+    private boolean replyFromCache(SearchRequestView request) {
+        Map<Node, List<String>> cached = results.get(request.getFilename());
+        if (cached == null || cached.isEmpty())
+            return false;
+        Node requester = request.getNode();
+        boolean answered = false;
+        for (Map.Entry<Node, List<String>> entry : cached.entrySet()) {
+            if (entry.getKey().equals(requester))
+                continue;
+            List<String> files = entry.getValue();
+            SearchResponse response = new SearchResponse(request.getQueryId(), files.size(), entry.getKey(),
+                    request.getHops() + 1, files);
+            this.handler.sendMessage(requester, response);
+            LOGGER.info(String.format("Cached response sent %s", response.toString()));
+            answered = true;
         }
-        return matches;
+        return answered;
+    }
+
+    /**
+     * Replies the requester that this node is too busy to serve the query
+     *
+     * @param packet a search request rejected due to overload
+     */
+    private void rejectQuery(Packet packet) {
+        SearchRequest request = SearchRequest.parse(packet.getMessage());
+        SearchResponse response = new SearchResponse(request.getQueryId(), SearchResponse.ERROR, this.self, request.getHops(), Collections.emptyList());
+        this.handler.sendMessage(request.getNode(), response);
+        LOGGER.debug(String.format("Query rejected due to overload %s", request.toString()));
+    }
+
+    /**
+     * Selects the nodes most likely to have the file among those the request has not visited, and marks them visited
+     *
+     * @param query   query of the request
+     * @param ignore  node not to forward to (ex: node the request came from)
+     * @param visited nodes the request passed through or was sent to, updated with self and the selected nodes
+     * @return nodes to send the request to
+     */
+    private List<Node> selectTargets(String query, Node ignore, VisitedSet visited) {
+        // Cache knows whole keywords only
+        Set<Node> targets = new LinkedHashSet<>(selectBestNodes(MatchMode.EXACT.apply(query)));
+        // TODO: Do this in selectBestNodes section
+        // Ignore nodes indicated by ignore args
+        if (ignore != null)
+            targets.remove(ignore);
+        targets.remove(self);
+        targets.removeIf(visited::mightContain);
+        // Nodes sent the request from here need not get it from each other
+        visited.add(self);
+        targets.forEach(visited::add);
+        return new ArrayList<>(targets);
+    }
+
+    /**
+     * Forwards a query to given nodes
+     *
+     * @param request request to forward (hops already incremented)
+     * @param targets nodes to send to
+     */
+    private void forward(IMessage request, List<Node> targets) {
+        targets.forEach(node -> {
+            this.handler.sendMessage(node, request);
+            LOGGER.info(String.format("Sending query %s to neighbour %s ", request.toString(), node.toString()));
+        });
     }
 
     /**
      * Update results when queries are search and results are found
      *
-     * @param node      Node containing the files
-     * @param filenames filenames matching the query
+     * @param query    search the results are for
+     * @param response response of the node containing the files
      */
-    private void updateResults(Node node, List<String> filenames) {
-        synchronized (results) {
-            if (!results.containsKey(node))
-                results.put(node, filenames);
-        }
-        cacheService.update(node, filenames);
+    private void updateResults(QueryHandle query, SearchResponse response) {
+        query.addResponse(response);
+        cacheService.update(response.getNode(), response.getFilenames());
+        if (!response.getNode().equals(self))
+            results.add(query.getQuery(), response.getNode(), response.getFilenames());
     }
 
     /**
@@ -218,63 +653,54 @@ public class QueryService {
      * @return list of filenames matching (containing) query
      */
     private List<String> searchFiles(String query) {
-        List<String> found = new ArrayList<>();
-        boolean isMatch;
-        String[] fNameArry;
-        for (String filename : filenames) {
-            fNameArry = filename.split(" +");
-            isMatch = true;
-            for (String keyword : query.split(" +")) {
-                if (!Arrays.asList(fNameArry).contains(keyword)) {
-                    isMatch = false;
-                    break;
-                }
-            }
-            if (isMatch) {
-                LOGGER.debug(String.format("Found file with name %s for query %s", filename, query));
-                found.add(filename.replace(' ', '_'));
-            }
-
+        List<String> found = filenames.search(query);
+        for (int i = 0; i < found.size(); i++) {
+            String filename = found.get(i);
+            LOGGER.debug(String.format("Found file with name %s for query %s", filename, query));
+            found.set(i, filename.replace(' ', '_'));
         }
         return found;
     }
 
     /**
-     * Returns self query
+     * Stops routing queries to a node and serving its files from cache
      *
-     * @return self query in progress
+     * @param node a node which failed or left
+     */
+    public void forget(Node node) {
+        cacheService.remove(node);
+        results.remove(node);
+        LOGGER.debug(String.format("Removed %s from caches", node.toString()));
+    }
+
+    /**
+     * Returns latest self query
+     *
+     * @return latest self query or null if not searched yet
      */
     public String getCurrentQuery() {
-        return currentQuery;
+        QueryHandle query = currentQuery;
+        return query == null ? null : query.getQuery();
     }
 
     /**
-     * returns map containing search results
+     * returns map containing results of the latest search
      *
      * @return map of nodes with respective files files
      */
     public Map<Node, List<String>> getSearchResults() {
-        return results;
+        QueryHandle query = currentQuery;
+        return query == null ? Collections.emptyMap() : query.getResults();
     }
 
     /**
-     * Check if the given query is already resolved
+     * Returns a search in progress
      *
-     * @param request a Search request
-     * @return true if the query is new otherwise return false
+     * @param queryId id of the query
+     * @return handle of the search or null if not in progress
      */
-    private synchronized boolean isNewQuery(SearchRequest request) {
-        String nodeName = request.getNode().toString();
-        String queryId = request.getQueryId();
-        Queue<String> idList = queryIdStore.get(nodeName);
-        if (idList == null) {
-            idList = Queues.synchronizedQueue(EvictingQueue.create(ID_STORE_QUERY_LENGTH));
-            queryIdStore.putIfAbsent(nodeName, idList);
-        } else if (idList.contains(queryId)) {
-            return false;
-        }
-        idList.add(queryId);
-        return true;
+    public QueryHandle getQuery(String queryId) {
+        return queries.get(queryId);
     }
 
     /**
@@ -286,5 +712,8 @@ public class QueryService {
         this.running = running;
         this.handleQueriesThread.interrupt();
         this.handleRepliesThread.interrupt();
+        this.handleWalksThread.interrupt();
+        this.handleWalkChecksThread.interrupt();
+        this.handleCancelsThread.interrupt();
     }
 }
@@ -1,27 +1,61 @@
 package lk.uomcse.fs.model;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lk.uomcse.fs.entity.Node;
 import lk.uomcse.fs.entity.Packet;
-import lk.uomcse.fs.messages.IMessage;
-import lk.uomcse.fs.udp.Receiver;
-import lk.uomcse.fs.udp.Sender;
+import lk.uomcse.fs.messages.*;
+import lk.uomcse.fs.udp.*;
+import lk.uomcse.fs.utils.BufferPool;
 import lk.uomcse.fs.utils.DatagramSocketUtils;
+import lk.uomcse.fs.utils.FramingUtils;
+import lk.uomcse.fs.utils.exceptions.InvalidFormatException;
 import org.apache.log4j.Logger;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class RequestHandler extends Thread {
     private final static Logger LOGGER = Logger.getLogger(RequestHandler.class.getName());
 
+    private final static int MAX_CACHED_ADDRESSES = 1024;
+
+    // Time to wait for a reply to an offer of binary encoding in seconds
+    private final static int OFFER_TIMEOUT = 5;
+
+    private final static byte[] OFFER_ID = BinaryRequest.ID.getBytes(StandardCharsets.US_ASCII);
+
     // -----------------------------------------------------------------------------------------------------------------
 
-    private final DatagramSocket socket;
+    private final Closeable socket;
+
+    private final IReceiver receiver;
+
+    private final ISender sender;
+
+    private final MessageDispatcher dispatcher;
+
+    private final LaneClassifier classifier;
 
-    private final Receiver receiver;
+    // Times out pending requests
+    private final ScheduledExecutorService timer;
 
-    private final Sender sender;
+    private final ConcurrentMap<Node, InetSocketAddress> addresses;
 
-    private final ConcurrentMap<String, BlockingQueue<Packet>> handle;
+    // Whether binary encoding is offered to and accepted from peers
+    private final boolean binary;
+
+    // Peers agreed on binary encoding
+    private final Set<InetSocketAddress> binaryPeers;
 
     // -----------------------------------------------------------------------------------------------------------------
 
@@ -33,10 +67,46 @@ public class RequestHandler extends Thread {
      * @param port port of this node
      */
     public RequestHandler(int port) {
-        this.socket = DatagramSocketUtils.getSocket(port);
-        this.receiver = new Receiver(socket);
-        this.sender = new Sender(socket);
-        this.handle = new ConcurrentHashMap<>();
+        this(port, TransportConfig.defaults());
+    }
+
+    /**
+     * Constructor with the udp layer selected by configurations
+     *
+     * @param port   port of this node
+     * @param config transport configurations
+     */
+    public RequestHandler(int port, TransportConfig config) {
+        // Search traffic must not delay overlay maintenance messages
+        this.classifier = new LaneClassifier(SearchRequest.ID, SearchResponse.ID, WalkRequest.ID);
+        switch (config.getTransport()) {
+            case CHANNEL:
+                DatagramChannel channel = DatagramSocketUtils.getChannel(port);
+                BufferPool pool = new BufferPool(config.getBufferCount(), config.getBufferSize());
+                this.socket = channel;
+                this.receiver = new ChannelReceiver(channel, pool, config.getReceiveQueueCapacity(), classifier);
+                this.sender = new ChannelSender(channel, config.isCoalesce());
+                break;
+            default:
+                DatagramSocket socket = DatagramSocketUtils.getSocket(port);
+                this.socket = socket;
+                this.receiver = new Receiver(socket, config.getReceiveQueueCapacity(), classifier);
+                this.sender = new Sender(socket, config.isCoalesce());
+        }
+        this.dispatcher = new MessageDispatcher(config, SearchRequest.ID, SearchResponse.ID, JoinRequest.ID, JoinResponse.ID,
+                HeartbeatPulse.ID, RegisterResponse.ID, UnregisterResponse.ID, WalkRequest.ID, WalkCheck.ID,
+                WalkCheckResponse.ID, SearchCancel.ID);
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("request-timer")
+                .setDaemon(true)
+                .build());
+        this.addresses = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_ADDRESSES)
+                .<Node, InetSocketAddress>build().asMap();
+        this.binary = config.isBinary();
+        this.binaryPeers = Collections.newSetFromMap(CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_ADDRESSES)
+                .<InetSocketAddress, Boolean>build().asMap());
     }
 
     /**
@@ -50,26 +120,66 @@ public class RequestHandler extends Thread {
         sender.start();
         while (running) {
             try {
-                Packet packet = receiver.receive();
-                String receivedStr = packet.getMessage();
-                LOGGER.debug(String.format("Received packet: %s", receivedStr));
-                String[] data = receivedStr.split(" ");
-                String id;
-                // Message should be at least contain 2 space separated strings
-                if (data.length >= 2) {
-                    id = data[1];
-                    handle.putIfAbsent(id, new LinkedBlockingQueue<>());
-                    BlockingQueue<Packet> packets = handle.get(id);
-                    packets.add(packet);
-                } // else { ignore }
+                Packet received = receiver.receive();
+                // A datagram may contain several messages packed by the sender
+                for (Packet packet : received.split()) {
+                    if (LOGGER.isDebugEnabled())
+                        LOGGER.debug(String.format("Received packet: %s", describe(packet)));
+                    if (isBinaryOffer(packet)) {
+                        replyBinaryOffer(packet);
+                        continue;
+                    }
+                    // Ignores messages without an ID, with an ID nobody waits for or overflowing its queue
+                    if (!dispatcher.dispatch(packet))
+                        packet.release();
+                }
             } catch (InterruptedException e) {
                 LOGGER.debug("Packet receive interrupted. Retrying...");
             }
         }
         LOGGER.trace("Finalizing request handler.");
+        this.timer.shutdownNow();
         this.sender.setRunning(false);
         this.receiver.setRunning(false);
-        this.socket.close();
+        try {
+            this.socket.close();
+        } catch (IOException e) {
+            LOGGER.error("Failed to close the socket.", e);
+        }
+    }
+
+    /**
+     * Whether the packet offers binary encoding. Offers are answered by the request handler itself.
+     *
+     * @param packet received packet
+     * @return whether the packet is a {@link BinaryRequest}
+     */
+    private static boolean isBinaryOffer(Packet packet) {
+        ByteBuffer data = packet.getData();
+        if (BinaryCodec.isBinary(data))
+            return false;
+        int start = FramingUtils.idStart(data);
+        return FramingUtils.tokenEquals(OFFER_ID, data, start, FramingUtils.tokenEnd(data, start));
+    }
+
+    /**
+     * Accepts binary encoding offered by the sender of the packet if binary encoding is enabled
+     *
+     * @param packet received offer
+     */
+    private void replyBinaryOffer(Packet packet) {
+        Node node = packet.getReceiverNode();
+        packet.release();
+        setBinary(node, binary);
+        sendMessage(node, new BinaryResponse(binary));
+    }
+
+    private static String describe(Packet packet) {
+        try {
+            return packet.getMessage();
+        } catch (InvalidFormatException e) {
+            return String.format("malformed binary message from %s", packet.getSourceAddress());
+        }
     }
 
     /**
@@ -80,16 +190,163 @@ public class RequestHandler extends Thread {
      * @param request request
      */
     public void sendMessage(String ip, int port, IMessage request) {
-        byte[] buf = request.toString().getBytes();
-        InetAddress address;
+        sendMessage(new Node(ip, port), request);
+    }
+
+    /**
+     * Requests given node
+     *
+     * @param node    the requested node
+     * @param request request
+     */
+    public void sendMessage(Node node, IMessage request) {
+        InetSocketAddress address;
         try {
-            address = InetAddress.getByName(ip);
+            address = resolve(node);
         } catch (UnknownHostException e) {
             // TODO: Create custom exception + handle correctly
             throw new RuntimeException("The IP address of a host could not be determined.");
         }
-        DatagramPacket packet = new DatagramPacket(buf, buf.length, address, port);
-        sender.send(packet);
+        // Messages without a binary form are sent as text
+        byte[] buf = binaryPeers.contains(address) ? request.encodeBinary() : null;
+        if (buf == null)
+            buf = request.encode();
+        Lane lane = classifier.classify(ByteBuffer.wrap(buf));
+        DatagramPacket packet = new DatagramPacket(buf, buf.length, address);
+        sender.send(packet, lane);
+    }
+
+    /**
+     * Gets socket address of the node. Addresses are resolved once and cached.
+     *
+     * @param node a node
+     * @return resolved socket address of the node
+     * @throws UnknownHostException if the ip of the node could not be resolved
+     */
+    public InetSocketAddress resolve(Node node) throws UnknownHostException {
+        InetSocketAddress address = addresses.get(node);
+        if (address == null) {
+            address = new InetSocketAddress(InetAddress.getByName(node.getIp()), node.getPort());
+            addresses.putIfAbsent(node, address);
+        }
+        return address;
+    }
+
+    /**
+     * Whether binary encoding is offered to peers
+     *
+     * @return whether this node accepts binary encoding
+     */
+    public boolean isBinarySupported() {
+        return binary;
+    }
+
+    /**
+     * Offers binary encoding to a node without waiting for the reply. Messages to the node are binary once it
+     * accepts. Nodes not knowing the offer never reply, hence they keep getting text.
+     *
+     * @param node a node
+     * @return future completed with whether the node accepted binary encoding
+     */
+    public CompletableFuture<Boolean> offerBinary(Node node) {
+        if (!binary)
+            return CompletableFuture.completedFuture(false);
+        return request(node, new BinaryRequest(), BinaryResponse.ID, OFFER_TIMEOUT).handle((reply, e) -> {
+            boolean accepted = false;
+            if (e == null) {
+                try {
+                    accepted = BinaryResponse.parse(reply).isSuccess();
+                } catch (InvalidFormatException ex) {
+                    LOGGER.debug(String.format("Invalid reply to binary offer: %s", reply));
+                }
+            }
+            setBinary(node, accepted);
+            LOGGER.debug(String.format("Encoding for %s: %s", node.toString(), accepted ? "binary" : "text"));
+            return accepted;
+        });
+    }
+
+    /**
+     * Sets encoding used for messages sent to the node. Only applies when binary encoding is supported.
+     *
+     * @param node   a node
+     * @param binary whether the node agreed on binary encoding
+     */
+    public void setBinary(Node node, boolean binary) {
+        InetSocketAddress address;
+        try {
+            address = resolve(node);
+        } catch (UnknownHostException e) {
+            LOGGER.debug(String.format("Unable to resolve %s. Using text encoding.", node.toString()));
+            return;
+        }
+        if (binary && this.binary)
+            binaryPeers.add(address);
+        else
+            binaryPeers.remove(address);
+    }
+
+    /**
+     * Runs a task after a delay on the timer of the request handler. The task must not block.
+     *
+     * @param task  task to run
+     * @param delay delay
+     * @param unit  unit of the delay
+     * @return future of the scheduled task
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return timer.schedule(task, delay, unit);
+    }
+
+    /**
+     * Requests given node and returns the reply of the node without waiting for it.
+     * Replies are matched by reply ID and the address of the node, hence concurrent requests to different nodes
+     * do not take each other's replies. Current protocol replies carry no token identifying the request,
+     * therefore concurrent requests to the same node are matched in the order they were sent.
+     *
+     * @param node    the requested node
+     * @param request request
+     * @param replyId id of the expected reply (see protocol specs)
+     * @param timeout time to wait for the reply in seconds
+     * @return future completed with the reply, or completed exceptionally with {@link TimeoutException}
+     */
+    public CompletableFuture<String> request(Node node, IMessage request, String replyId, int timeout) {
+        return request(node, request, replyId, timeout, packet -> true);
+    }
+
+    /**
+     * Requests given node and returns the reply of the node accepted by the filter without waiting for it.
+     * Replies carrying a token of the request (ex: a query id) are matched to the request by the filter, hence
+     * replies of other requests to the same node, late or reordered, are not taken.
+     *
+     * @param node    the requested node
+     * @param request request
+     * @param replyId id of the expected reply (see protocol specs)
+     * @param timeout time to wait for the reply in seconds
+     * @param filter  whether a received reply is the reply of this request
+     * @return future completed with the reply, or completed exceptionally with {@link TimeoutException}
+     */
+    public CompletableFuture<String> request(Node node, IMessage request, String replyId, int timeout,
+                                             Predicate<Packet> filter) {
+        InetSocketAddress address;
+        try {
+            address = resolve(node);
+        } catch (UnknownHostException e) {
+            CompletableFuture<String> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+        CompletableFuture<Packet> reply = dispatcher.expect(replyId, address, filter);
+        ScheduledFuture<?> timeoutTask = timer.schedule(() -> reply.completeExceptionally(
+                new TimeoutException(String.format("Reply %s from %s not received.", replyId, node.toString()))),
+                timeout, TimeUnit.SECONDS);
+        sendMessage(node, request);
+        return reply.thenApply(packet -> {
+            timeoutTask.cancel(false);
+            String message = packet.getMessage();
+            packet.release();
+            return message;
+        });
     }
 
     /**
@@ -100,7 +357,9 @@ public class RequestHandler extends Thread {
      */
     public String receiveMessage(String id) {
         Packet packet = receivePacket(id);
-        return packet.getMessage();
+        String message = packet.getMessage();
+        packet.release();
+        return message;
     }
 
     /**
@@ -110,8 +369,7 @@ public class RequestHandler extends Thread {
      * @return reply as String
      */
     public String receiveMessage(String id, int timeout) throws TimeoutException {
-        handle.putIfAbsent(id, new LinkedBlockingQueue<>());
-        BlockingQueue<Packet> packets = handle.get(id);
+        BlockingQueue<Packet> packets = dispatcher.queue(id);
         Packet packet;
         try {
             LOGGER.debug(String.format("Waiting for message with ID: %s", id));
@@ -124,18 +382,20 @@ public class RequestHandler extends Thread {
             // TODO: change following exception
             throw new RuntimeException("Interrupted from getting a reply.");
         }
-        return packet.getMessage();
+        String message = packet.getMessage();
+        packet.release();
+        return message;
     }
 
     /**
      * Gets reply for reply ID if exists or waits until there is a reply
+     * The caller must release the packet once it is consumed
      *
      * @param id reply id (see protocol specs)
      * @return reply as packet
      */
     public Packet receivePacket(String id) {
-        handle.putIfAbsent(id, new LinkedBlockingQueue<>());
-        BlockingQueue<Packet> packets = handle.get(id);
+        BlockingQueue<Packet> packets = dispatcher.queue(id);
         Packet packet;
         try {
             LOGGER.debug(String.format("Waiting for message with ID: %s", id));
@@ -148,6 +408,36 @@ public class RequestHandler extends Thread {
         return packet;
     }
 
+    /**
+     * Sets how to reply senders of messages rejected since the queue of the message ID is full
+     * (see {@link lk.uomcse.fs.udp.OverflowPolicy#REJECT}). Called on the request handler thread, hence must not block.
+     *
+     * @param id      message id
+     * @param handler function replying the sender of a rejected packet
+     */
+    public void setRejectHandler(String id, Consumer<Packet> handler) {
+        dispatcher.setRejectHandler(id, handler);
+    }
+
+    /**
+     * Gets number of received packets dropped due to overload
+     *
+     * @return dropped packet count
+     */
+    public long getDroppedCount() {
+        return receiver.getDroppedCount() + dispatcher.getDroppedCount();
+    }
+
+    /**
+     * Gets number of packets of a message ID dropped due to overload
+     *
+     * @param id message id
+     * @return dropped packet count
+     */
+    public long getDroppedCount(String id) {
+        return dispatcher.getDroppedCount(id);
+    }
+
     /**
      * Set running status
      *
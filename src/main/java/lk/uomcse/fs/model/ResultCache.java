@@ -0,0 +1,122 @@
+package lk.uomcse.fs.model;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import lk.uomcse.fs.entity.Node;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of recent searches by query.
+ * <p>
+ * Queries are normalized (lowercase, keywords sorted) so that the same keywords in a different order or case share
+ * an entry. Files found expire a while after the last response for the query. Queries that found nothing are
+ * remembered for a shorter time so they are not repeated over the network while files may still appear.
+ */
+public class ResultCache {
+    private final ConcurrentMap<String, Map<Node, List<String>>> hits;
+
+    private final ConcurrentMap<String, Boolean> misses;
+
+    /**
+     * Creates a result cache
+     *
+     * @param size    max number of queries remembered
+     * @param ttl     time results are kept
+     * @param missTtl time queries without results are kept
+     * @param unit    unit of the times
+     */
+    public ResultCache(int size, long ttl, long missTtl, TimeUnit unit) {
+        this(size, ttl, missTtl, unit, Ticker.systemTicker());
+    }
+
+    ResultCache(int size, long ttl, long missTtl, TimeUnit unit, Ticker ticker) {
+        if (size < 1 || ttl < 1 || missTtl < 1)
+            throw new IllegalArgumentException("The size and times should be greater than zero");
+        this.hits = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(ttl, unit)
+                .ticker(ticker)
+                .<String, Map<Node, List<String>>>build().asMap();
+        this.misses = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(missTtl, unit)
+                .ticker(ticker)
+                .<String, Boolean>build().asMap();
+    }
+
+    /**
+     * Adds files found by a search
+     *
+     * @param query     query of the search
+     * @param node      node having the files
+     * @param filenames files of the node matching the query
+     */
+    public void add(String query, Node node, List<String> filenames) {
+        String key = normalize(query);
+        misses.remove(key);
+        // Entries are replaced rather than modified, hence readers never see a partial update
+        hits.compute(key, (k, results) -> {
+            Map<Node, List<String>> updated = results == null ? new LinkedHashMap<>() : new LinkedHashMap<>(results);
+            updated.put(node, Collections.unmodifiableList(new ArrayList<>(filenames)));
+            return Collections.unmodifiableMap(updated);
+        });
+    }
+
+    /**
+     * Remembers that a search found no files
+     *
+     * @param query query of the search
+     */
+    public void addMiss(String query) {
+        String key = normalize(query);
+        if (!hits.containsKey(key))
+            misses.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * Removes files of a node from all results
+     *
+     * @param node a node which failed or left
+     */
+    public void remove(Node node) {
+        for (String key : hits.keySet()) {
+            hits.computeIfPresent(key, (k, results) -> {
+                if (!results.containsKey(node))
+                    return results;
+                Map<Node, List<String>> updated = new LinkedHashMap<>(results);
+                updated.remove(node);
+                // Not a miss, files may still be found elsewhere
+                return updated.isEmpty() ? null : Collections.unmodifiableMap(updated);
+            });
+        }
+    }
+
+    /**
+     * Gets results of a recent search
+     *
+     * @param query query
+     * @return files by node, an empty map if the search found nothing or null if the query is not known
+     */
+    public Map<Node, List<String>> get(String query) {
+        String key = normalize(query);
+        Map<Node, List<String>> results = hits.get(key);
+        if (results != null)
+            return results;
+        return misses.containsKey(key) ? Collections.emptyMap() : null;
+    }
+
+    /**
+     * Normalizes a query to its lowercase keywords in sorted order
+     *
+     * @param query query
+     * @return key of the query
+     */
+    static String normalize(String query) {
+        List<String> keywords = FileIndex.tokenize(query.toLowerCase());
+        Collections.sort(keywords);
+        return String.join(" ", keywords);
+    }
+}
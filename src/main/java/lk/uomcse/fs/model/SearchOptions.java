@@ -0,0 +1,160 @@
+package lk.uomcse.fs.model;
+
+/**
+ * Options of a search started by this node (see {@link QueryService#search(String, SearchOptions)})
+ */
+public class SearchOptions {
+    private static final int DEFAULT_TIMEOUT = 30;
+
+    private static final long DEFAULT_RING_TIMEOUT = 2000;
+
+    private static final int DEFAULT_WALKERS = 4;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private final MatchMode matchMode;
+
+    private final SearchStrategy strategy;
+
+    private final int timeout;
+
+    private final int minResults;
+
+    private final long ringTimeout;
+
+    private final int walkers;
+
+    private final boolean stopWhenSatisfied;
+
+    private SearchOptions(Builder builder) {
+        this.matchMode = builder.matchMode;
+        this.strategy = builder.strategy;
+        this.timeout = builder.timeout;
+        this.minResults = builder.minResults;
+        this.ringTimeout = builder.ringTimeout;
+        this.walkers = builder.walkers;
+        this.stopWhenSatisfied = builder.stopWhenSatisfied;
+    }
+
+    /**
+     * Creates options with default values
+     *
+     * @return default options
+     */
+    public static SearchOptions defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     * Returns how keywords match. Null to use the modes marked in the query (see {@link MatchMode}).
+     *
+     * @return match mode of all keywords
+     */
+    public MatchMode getMatchMode() {
+        return matchMode;
+    }
+
+    public SearchStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns seconds to accept results for
+     *
+     * @return timeout of the search
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Returns number of nodes with results that satisfies the search
+     *
+     * @return min number of results
+     */
+    public int getMinResults() {
+        return minResults;
+    }
+
+    /**
+     * Returns milliseconds to wait for results of a ring before reaching further
+     *
+     * @return timeout of a ring
+     */
+    public long getRingTimeout() {
+        return ringTimeout;
+    }
+
+    /**
+     * Returns number of walkers of a random walk search
+     *
+     * @return walker count
+     */
+    public int getWalkers() {
+        return walkers;
+    }
+
+    /**
+     * Returns whether the search completes as soon as min results are received, cancelling requests in flight
+     *
+     * @return whether to stop once satisfied
+     */
+    public boolean isStopWhenSatisfied() {
+        return stopWhenSatisfied;
+    }
+
+    public static class Builder {
+        private MatchMode matchMode = null;
+
+        private SearchStrategy strategy = SearchStrategy.FLOOD;
+
+        private int timeout = DEFAULT_TIMEOUT;
+
+        private int minResults = 1;
+
+        private long ringTimeout = DEFAULT_RING_TIMEOUT;
+
+        private int walkers = DEFAULT_WALKERS;
+
+        private boolean stopWhenSatisfied = false;
+
+        public Builder setMatchMode(MatchMode matchMode) {
+            this.matchMode = matchMode;
+            return this;
+        }
+
+        public Builder setStrategy(SearchStrategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        public Builder setTimeout(int timeout) {
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder setMinResults(int minResults) {
+            this.minResults = minResults;
+            return this;
+        }
+
+        public Builder setRingTimeout(long ringTimeout) {
+            this.ringTimeout = ringTimeout;
+            return this;
+        }
+
+        public Builder setWalkers(int walkers) {
+            this.walkers = walkers;
+            return this;
+        }
+
+        public Builder setStopWhenSatisfied(boolean stopWhenSatisfied) {
+            this.stopWhenSatisfied = stopWhenSatisfied;
+            return this;
+        }
+
+        public SearchOptions build() {
+            return new SearchOptions(this);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package lk.uomcse.fs.model;
+
+/**
+ * How a search started by this node spreads over the overlay
+ */
+public enum SearchStrategy {
+    // Forward up to the max number of hops at once
+    FLOOD,
+    // Forward a few hops first, reaching further only if too few results arrive in time
+    EXPANDING_RING,
+    // Send a few walkers each taking one random neighbour per hop until enough results arrive
+    RANDOM_WALK
+}
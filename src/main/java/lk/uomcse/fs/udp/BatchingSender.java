@@ -0,0 +1,156 @@
+package lk.uomcse.fs.udp;
+
+import lk.uomcse.fs.utils.FramingUtils;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.SocketAddress;
+import java.util.*;
+
+/**
+ * Sender draining queued packets in batches, control lane first.
+ * When coalescing is enabled, small messages to the same destination within a batch are packed into one datagram.
+ * Messages are self delimited by their length prefix, hence the receiver splits them back.
+ */
+public abstract class BatchingSender extends Thread implements ISender {
+    private static final int MAX_RETRIES = 3;
+
+    private static final int MAX_BATCH_SIZE = 64;
+
+    // Keeps a coalesced datagram within a single ethernet frame
+    private static final int MAX_COALESCED_LENGTH = 1472;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private final PriorityLanes<DatagramPacket> packets;
+
+    private final List<DatagramPacket> batch;
+
+    private final boolean coalesce;
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private boolean running;
+
+    /**
+     * Creates the part of client that handles sends
+     *
+     * @param coalesce whether to pack messages to the same destination into one datagram
+     */
+    protected BatchingSender(boolean coalesce) {
+        this.packets = new PriorityLanes<>(Integer.MAX_VALUE);
+        this.batch = new ArrayList<>(MAX_BATCH_SIZE);
+        this.coalesce = coalesce;
+        this.running = false;
+    }
+
+    /**
+     * Thread function
+     */
+    @Override
+    public void run() {
+        this.running = true;
+        while (running) {
+            try {
+                batch.add(this.packets.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            this.packets.drainTo(batch, MAX_BATCH_SIZE - 1);
+            if (coalesce && batch.size() > 1)
+                coalesce(batch).forEach(this::sendWithRetries);
+            else
+                batch.forEach(this::sendWithRetries);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Sends a datagram, retrying on failure
+     *
+     * @param packet datagram to send
+     */
+    private void sendWithRetries(DatagramPacket packet) {
+        int retries = 0;
+        while (retries < MAX_RETRIES) {
+            try {
+                this.transmit(packet);
+                break;
+            } catch (IOException e) {
+                retries++;
+            }
+        }
+    }
+
+    /**
+     * Groups packets by destination and packs consecutive small messages of each group into single datagrams
+     *
+     * @param batch packets in the order they were queued
+     * @return datagrams to send
+     */
+    private List<DatagramPacket> coalesce(List<DatagramPacket> batch) {
+        Map<SocketAddress, List<DatagramPacket>> groups = new LinkedHashMap<>();
+        for (DatagramPacket packet : batch)
+            groups.computeIfAbsent(packet.getSocketAddress(), k -> new ArrayList<>()).add(packet);
+        List<DatagramPacket> datagrams = new ArrayList<>(batch.size());
+        for (Map.Entry<SocketAddress, List<DatagramPacket>> group : groups.entrySet()) {
+            List<DatagramPacket> pending = new ArrayList<>();
+            int length = 0;
+            for (DatagramPacket packet : group.getValue()) {
+                if (!FramingUtils.isSingleFrame(packet.getData(), packet.getOffset(), packet.getLength())) {
+                    datagrams.add(packet);
+                    continue;
+                }
+                if (length + packet.getLength() > MAX_COALESCED_LENGTH) {
+                    datagrams.add(pack(pending, length, group.getKey()));
+                    pending.clear();
+                    length = 0;
+                }
+                pending.add(packet);
+                length += packet.getLength();
+            }
+            if (!pending.isEmpty())
+                datagrams.add(pack(pending, length, group.getKey()));
+        }
+        return datagrams;
+    }
+
+    /**
+     * Concatenates messages into one datagram
+     *
+     * @param packets     packets with messages to concatenate
+     * @param length      total length of the messages
+     * @param destination destination of the messages
+     * @return datagram with all messages
+     */
+    private static DatagramPacket pack(List<DatagramPacket> packets, int length, SocketAddress destination) {
+        if (packets.size() == 1)
+            return packets.get(0);
+        byte[] buf = new byte[length];
+        int offset = 0;
+        for (DatagramPacket packet : packets) {
+            System.arraycopy(packet.getData(), packet.getOffset(), buf, offset, packet.getLength());
+            offset += packet.getLength();
+        }
+        return new DatagramPacket(buf, length, destination);
+    }
+
+    /**
+     * Writes a single datagram to the network
+     *
+     * @param packet datagram with destination address set
+     * @throws IOException if sending failed
+     */
+    protected abstract void transmit(DatagramPacket packet) throws IOException;
+
+    @Override
+    public void send(DatagramPacket packet, Lane lane) {
+        this.packets.offer(packet, lane);
+    }
+
+    @Override
+    public void setRunning(boolean running) {
+        this.running = running;
+        this.interrupt();
+    }
+}
@@ -0,0 +1,106 @@
+package lk.uomcse.fs.udp;
+
+import lk.uomcse.fs.entity.Packet;
+import lk.uomcse.fs.utils.BufferPool;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receiver reading datagrams from a {@link DatagramChannel} into pooled direct buffers.
+ * Buffers are returned to the pool when the received {@link Packet} is released. The pool bounds the buffers in
+ * flight, hence the receiver waits for consumers to release packets once all buffers are in use.
+ */
+public class ChannelReceiver extends Thread implements IReceiver {
+    private boolean running;
+
+    private final DatagramChannel channel;
+
+    private final BufferPool pool;
+
+    private final PriorityLanes<Packet> packets;
+
+    private final LaneClassifier classifier;
+
+    private final AtomicLong dropped;
+
+    /**
+     * Creates the part of client that handles receives
+     *
+     * @param channel    blocking datagram channel
+     * @param pool       pool of receive buffers
+     * @param capacity   max number of received packets of a lane waiting to be taken
+     * @param classifier assigns received packets to lanes
+     */
+    public ChannelReceiver(DatagramChannel channel, BufferPool pool, int capacity, LaneClassifier classifier) {
+        this.packets = new PriorityLanes<>(capacity);
+        this.classifier = classifier;
+        this.dropped = new AtomicLong();
+        this.running = false;
+        this.channel = channel;
+        this.pool = pool;
+    }
+
+    /**
+     * Thread function
+     */
+    @Override
+    public void run() {
+        running = true;
+        while (running) {
+            ByteBuffer buf;
+            try {
+                buf = pool.acquire();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            boolean queued = false;
+            try {
+                InetSocketAddress source = (InetSocketAddress) channel.receive(buf);
+                buf.flip();
+                queued = packets.offer(new Packet(buf, source, pool), classifier.classify(buf));
+                if (!queued)
+                    dropped.incrementAndGet();
+            } catch (ClosedChannelException e) {
+                running = false;
+            } catch (IOException ignored) {
+                // -- Retry
+            } finally {
+                // Queued buffers are released with their packet
+                if (!queued)
+                    pool.release(buf);
+            }
+        }
+    }
+
+    /**
+     * Takes packets received from the queue. Packets of the control lane are taken first.
+     *
+     * @return received message
+     * @throws InterruptedException Whether receive was interrupted
+     */
+    @Override
+    public Packet receive() throws InterruptedException {
+        return packets.take();
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Sets run status and interrupt current activities
+     *
+     * @param running value
+     */
+    @Override
+    public void setRunning(boolean running) {
+        this.running = running;
+        this.interrupt();
+    }
+}
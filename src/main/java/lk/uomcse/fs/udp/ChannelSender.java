@@ -0,0 +1,30 @@
+package lk.uomcse.fs.udp;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Sender writing queued datagrams to a {@link DatagramChannel}
+ */
+public class ChannelSender extends BatchingSender {
+    private final DatagramChannel channel;
+
+    /**
+     * Creates the part of client that handles sends
+     *
+     * @param channel  blocking datagram channel
+     * @param coalesce whether to pack messages to the same destination into one datagram
+     */
+    public ChannelSender(DatagramChannel channel, boolean coalesce) {
+        super(coalesce);
+        this.channel = channel;
+    }
+
+    @Override
+    protected void transmit(DatagramPacket packet) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength());
+        this.channel.send(buf, packet.getSocketAddress());
+    }
+}
@@ -0,0 +1,32 @@
+package lk.uomcse.fs.udp;
+
+import lk.uomcse.fs.entity.Packet;
+
+public interface IReceiver {
+    /**
+     * Starts receiving packets
+     */
+    void start();
+
+    /**
+     * Takes packets received from the queue
+     *
+     * @return received message
+     * @throws InterruptedException Whether receive was interrupted
+     */
+    Packet receive() throws InterruptedException;
+
+    /**
+     * Gets number of packets dropped since the receive queue was full
+     *
+     * @return dropped packet count
+     */
+    long getDroppedCount();
+
+    /**
+     * Sets run status and interrupt current activities
+     *
+     * @param running value
+     */
+    void setRunning(boolean running);
+}
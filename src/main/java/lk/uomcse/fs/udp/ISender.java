@@ -0,0 +1,25 @@
+package lk.uomcse.fs.udp;
+
+import java.net.DatagramPacket;
+
+public interface ISender {
+    /**
+     * Starts sending queued packets
+     */
+    void start();
+
+    /**
+     * Queues a packet to be sent. Packets of the control lane are sent first.
+     *
+     * @param packet packet with destination address set
+     * @param lane   priority lane of the packet
+     */
+    void send(DatagramPacket packet, Lane lane);
+
+    /**
+     * Sets run status and interrupt current activities
+     *
+     * @param running value
+     */
+    void setRunning(boolean running);
+}
@@ -0,0 +1,16 @@
+package lk.uomcse.fs.udp;
+
+/**
+ * Priority lanes of packets in the udp layer
+ */
+public enum Lane {
+    /**
+     * Latency sensitive overlay maintenance traffic (heartbeat, join, register, ...). Always served first.
+     */
+    CONTROL,
+
+    /**
+     * Search traffic
+     */
+    BULK
+}
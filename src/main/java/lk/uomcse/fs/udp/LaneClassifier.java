@@ -0,0 +1,52 @@
+package lk.uomcse.fs.udp;
+
+import lk.uomcse.fs.messages.BinaryCodec;
+import lk.uomcse.fs.utils.FramingUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Assigns packets to lanes by the message ID in their content
+ */
+public class LaneClassifier {
+    private final String[] bulkNames;
+
+    private final byte[][] bulkIds;
+
+    /**
+     * Creates a classifier sending given IDs to the bulk lane and everything else to the control lane
+     *
+     * @param bulkIds IDs of bulk messages
+     */
+    public LaneClassifier(String... bulkIds) {
+        this.bulkNames = bulkIds.clone();
+        this.bulkIds = new byte[bulkIds.length][];
+        for (int i = 0; i < bulkIds.length; i++)
+            this.bulkIds[i] = bulkIds[i].getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Gets lane of a message. Packed messages take the lane of the first one.
+     *
+     * @param data content of the message from position to limit
+     * @return lane of the message
+     */
+    public Lane classify(ByteBuffer data) {
+        if (BinaryCodec.isBinary(data)) {
+            String name = BinaryCodec.idOf(data);
+            for (String id : bulkNames) {
+                if (id.equals(name))
+                    return Lane.BULK;
+            }
+            return Lane.CONTROL;
+        }
+        int start = FramingUtils.idStart(data);
+        int end = FramingUtils.tokenEnd(data, start);
+        for (byte[] id : bulkIds) {
+            if (FramingUtils.tokenEquals(id, data, start, end))
+                return Lane.BULK;
+        }
+        return Lane.CONTROL;
+    }
+}
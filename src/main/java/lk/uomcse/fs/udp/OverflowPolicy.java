@@ -0,0 +1,31 @@
+package lk.uomcse.fs.udp;
+
+/**
+ * What to do with a received packet when its inbound queue is full
+ */
+public enum OverflowPolicy {
+    /**
+     * Discards the oldest queued packet to make room for the received one
+     */
+    DROP_OLDEST,
+
+    /**
+     * Discards the received packet
+     */
+    DROP_NEWEST,
+
+    /**
+     * Discards the received packet and replies the sender that this node is busy
+     */
+    REJECT;
+
+    /**
+     * Parses policy name as given in configurations (ex: drop-oldest)
+     *
+     * @param name name of the policy (case insensitive)
+     * @return matching policy
+     */
+    public static OverflowPolicy parse(String name) {
+        return OverflowPolicy.valueOf(name.trim().replace('-', '_').toUpperCase());
+    }
+}
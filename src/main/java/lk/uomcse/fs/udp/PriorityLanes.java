@@ -0,0 +1,78 @@
+package lk.uomcse.fs.udp;
+
+import java.util.Collection;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A pair of bounded queues where items of the control lane are always taken before items of the bulk lane
+ *
+ * @param <T> type of items
+ */
+public class PriorityLanes<T> {
+    private final BlockingQueue<T> control;
+
+    private final BlockingQueue<T> bulk;
+
+    // One permit per queued item of either lane
+    private final Semaphore available;
+
+    /**
+     * Creates lanes
+     *
+     * @param capacity max number of items in each lane
+     */
+    public PriorityLanes(int capacity) {
+        this.control = new LinkedBlockingQueue<>(capacity);
+        this.bulk = new LinkedBlockingQueue<>(capacity);
+        this.available = new Semaphore(0);
+    }
+
+    /**
+     * Adds an item to a lane if the lane is not full
+     *
+     * @param item an item
+     * @param lane lane of the item
+     * @return whether the item was added
+     */
+    public boolean offer(T item, Lane lane) {
+        BlockingQueue<T> queue = lane == Lane.CONTROL ? control : bulk;
+        if (!queue.offer(item))
+            return false;
+        available.release();
+        return true;
+    }
+
+    /**
+     * Takes the next item, waiting if there is none. Control items are taken first.
+     *
+     * @return next item
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public T take() throws InterruptedException {
+        available.acquire();
+        return poll();
+    }
+
+    /**
+     * Moves available items to the collection without waiting. Control items are moved first.
+     *
+     * @param items       collection to add items to
+     * @param maxElements max number of items to move
+     * @return number of items moved
+     */
+    public int drainTo(Collection<? super T> items, int maxElements) {
+        int count = 0;
+        while (count < maxElements && available.tryAcquire()) {
+            items.add(poll());
+            count++;
+        }
+        return count;
+    }
+
+    private T poll() {
+        T item = control.poll();
+        return item != null ? item : bulk.poll();
+    }
+}
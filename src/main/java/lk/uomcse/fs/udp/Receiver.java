@@ -1,20 +1,22 @@
 package lk.uomcse.fs.udp;
 
-import com.google.common.collect.Queues;
 import lk.uomcse.fs.entity.Packet;
 
 import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class Receiver extends Thread {
+public class Receiver extends Thread implements IReceiver {
     private boolean running;
 
     private DatagramSocket socket;
 
-    private final BlockingQueue<Packet> packets;
+    private final PriorityLanes<Packet> packets;
+
+    private final LaneClassifier classifier;
+
+    private final AtomicLong dropped;
 
     /**
      * Creates the part of client that handles receives
@@ -22,7 +24,20 @@ public class Receiver extends Thread {
      * @param socket Datagram socket
      */
     public Receiver(DatagramSocket socket) {
-        this.packets = Queues.newLinkedBlockingDeque();
+        this(socket, Integer.MAX_VALUE, new LaneClassifier());
+    }
+
+    /**
+     * Creates the part of client that handles receives
+     *
+     * @param socket     Datagram socket
+     * @param capacity   max number of received packets of a lane waiting to be taken
+     * @param classifier assigns received packets to lanes
+     */
+    public Receiver(DatagramSocket socket, int capacity, LaneClassifier classifier) {
+        this.packets = new PriorityLanes<>(capacity);
+        this.classifier = classifier;
+        this.dropped = new AtomicLong();
         this.running = false;
         this.socket = socket;
     }
@@ -30,6 +45,7 @@ public class Receiver extends Thread {
     /**
      * Thread function
      */
+    @Override
     public void run() {
         running = true;
         while (running) {
@@ -38,7 +54,8 @@ public class Receiver extends Thread {
             try {
                 socket.receive(packet);
                 Packet p = new Packet(packet);
-                packets.offer(p);
+                if (!packets.offer(p, classifier.classify(p.getData())))
+                    dropped.incrementAndGet();
             } catch (IOException ignored) {
                 // -- Retry
             }
@@ -46,20 +63,27 @@ public class Receiver extends Thread {
     }
 
     /**
-     * Takes packets received from the queue
+     * Takes packets received from the queue. Packets of the control lane are taken first.
      *
      * @return received message
      * @throws InterruptedException Whether receive was interrupted
      */
+    @Override
     public Packet receive() throws InterruptedException {
         return packets.take();
     }
 
+    @Override
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
     /**
      * Sets run status and interrupt current activities
      *
      * @param running value
      */
+    @Override
     public void setRunning(boolean running) {
         this.running = running;
         this.interrupt();
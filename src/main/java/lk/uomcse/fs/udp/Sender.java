@@ -2,61 +2,32 @@ package lk.uomcse.fs.udp;
 
 import java.io.IOException;
 import java.net.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
-public class Sender extends Thread {
-    private static final int MAX_RETRIES = 3;
-
-    private boolean running;
 
+public class Sender extends BatchingSender {
     private DatagramSocket socket;
 
-    private BlockingQueue<DatagramPacket> packets;
-
     /**
      * Creates the part of client that handles sends
      *
      * @param socket Datagram socket
      */
     public Sender(DatagramSocket socket) {
-        this.packets = new LinkedBlockingQueue<>();
-        this.running = false;
-        this.socket = socket;
+        this(socket, false);
     }
 
     /**
-     * Thread function
+     * Creates the part of client that handles sends
+     *
+     * @param socket   Datagram socket
+     * @param coalesce whether to pack messages to the same destination into one datagram
      */
-    @Override
-    public void run() {
-        this.running = true;
-        int retries;
-        while (running) {
-            DatagramPacket packet;
-            try {
-                packet = this.packets.take();
-            } catch (InterruptedException e) {
-                continue;
-            }
-            retries = 0;
-            while (retries < MAX_RETRIES) {
-                try {
-                    this.socket.send(packet);
-                    break;
-                } catch (IOException e) {
-                    retries++;
-                }
-            }
-        }
-    }
-
-    public void send(DatagramPacket packet) {
-        this.packets.add(packet);
+    public Sender(DatagramSocket socket, boolean coalesce) {
+        super(coalesce);
+        this.socket = socket;
     }
 
-    public void setRunning(boolean running) {
-        this.running = running;
-        this.interrupt();
+    @Override
+    protected void transmit(DatagramPacket packet) throws IOException {
+        this.socket.send(packet);
     }
 }
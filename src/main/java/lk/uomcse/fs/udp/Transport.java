@@ -0,0 +1,26 @@
+package lk.uomcse.fs.udp;
+
+/**
+ * Available implementations of the udp layer
+ */
+public enum Transport {
+    /**
+     * {@link java.net.DatagramSocket} based {@link Receiver} and {@link Sender}
+     */
+    SOCKET,
+
+    /**
+     * {@link java.nio.channels.DatagramChannel} based {@link ChannelReceiver} and {@link ChannelSender}
+     */
+    CHANNEL;
+
+    /**
+     * Parses transport name as given in configurations
+     *
+     * @param name name of the transport (case insensitive)
+     * @return matching transport
+     */
+    public static Transport parse(String name) {
+        return Transport.valueOf(name.trim().toUpperCase());
+    }
+}
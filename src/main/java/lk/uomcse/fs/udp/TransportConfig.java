@@ -0,0 +1,273 @@
+package lk.uomcse.fs.udp;
+
+import lk.uomcse.fs.messages.HeartbeatPulse;
+import lk.uomcse.fs.messages.SearchRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Configurations of the udp layer of a node
+ */
+public class TransportConfig {
+    private static final int DEFAULT_BUFFER_COUNT = 64;
+
+    private static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private static final int DEFAULT_RECEIVE_QUEUE_CAPACITY = 4096;
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final String QUEUE_PREFIX = "fs.queue.";
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private final Transport transport;
+
+    private final int bufferCount;
+
+    private final int bufferSize;
+
+    private final boolean coalesce;
+
+    private final boolean binary;
+
+    private final int receiveQueueCapacity;
+
+    private final int queueCapacity;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Map<String, Integer> queueCapacities;
+
+    private final Map<String, OverflowPolicy> overflowPolicies;
+
+    private TransportConfig(Builder builder) {
+        this.transport = builder.transport;
+        this.bufferCount = builder.bufferCount;
+        this.bufferSize = builder.bufferSize;
+        this.coalesce = builder.coalesce;
+        this.binary = builder.binary;
+        this.receiveQueueCapacity = builder.receiveQueueCapacity;
+        this.queueCapacity = builder.queueCapacity;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.queueCapacities = new HashMap<>(builder.queueCapacities);
+        this.overflowPolicies = new HashMap<>(builder.overflowPolicies);
+    }
+
+    /**
+     * Creates configurations with default values
+     *
+     * @return default configurations
+     */
+    public static TransportConfig defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     * Reads transport configurations from properties. Missing properties take default values.
+     *
+     * @param props properties (see config.properties)
+     * @return transport configurations
+     */
+    public static TransportConfig fromProperties(Properties props) {
+        Builder builder = new Builder();
+        String transport = props.getProperty("fs.transport");
+        if (transport != null)
+            builder.setTransport(Transport.parse(transport));
+        String buffers = props.getProperty("fs.transport.buffers");
+        if (buffers != null)
+            builder.setBufferCount(Integer.parseInt(buffers.trim()));
+        String coalesce = props.getProperty("fs.transport.coalesce");
+        if (coalesce != null)
+            builder.setCoalesce(Boolean.parseBoolean(coalesce.trim()));
+        String binary = props.getProperty("fs.transport.binary");
+        if (binary != null)
+            builder.setBinary(Boolean.parseBoolean(binary.trim()));
+        String receiveQueue = props.getProperty("fs.transport.queue");
+        if (receiveQueue != null)
+            builder.setReceiveQueueCapacity(Integer.parseInt(receiveQueue.trim()));
+        for (String key : props.stringPropertyNames()) {
+            if (!key.startsWith(QUEUE_PREFIX))
+                continue;
+            String name = key.substring(QUEUE_PREFIX.length());
+            String value = props.getProperty(key).trim();
+            if (name.equals("capacity")) {
+                builder.setQueueCapacity(Integer.parseInt(value));
+            } else if (name.equals("policy")) {
+                builder.setOverflowPolicy(OverflowPolicy.parse(value));
+            } else {
+                // fs.queue.<ID>=capacity[,policy]
+                String[] parts = value.split(",");
+                OverflowPolicy policy = parts.length > 1 ? OverflowPolicy.parse(parts[1]) : null;
+                builder.setQueue(name, Integer.parseInt(parts[0].trim()), policy);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets udp layer implementation to use
+     *
+     * @return transport
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Gets max number of receive buffers of the pool, i.e. received packets held at once
+     *
+     * @return number of buffers
+     */
+    public int getBufferCount() {
+        return bufferCount;
+    }
+
+    /**
+     * Gets size of a receive buffer (max datagram size)
+     *
+     * @return buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Whether small messages to the same destination are packed into one datagram
+     *
+     * @return coalesce state
+     */
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    /**
+     * Whether to offer the compact binary encoding to peers once joined
+     *
+     * @return binary encoding state
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Gets max number of received datagrams waiting to be dispatched
+     *
+     * @return capacity of the receiver queue
+     */
+    public int getReceiveQueueCapacity() {
+        return receiveQueueCapacity;
+    }
+
+    /**
+     * Gets max number of packets queued for a message ID
+     *
+     * @param id message id
+     * @return capacity of the inbound queue of the id
+     */
+    public int getQueueCapacity(String id) {
+        return queueCapacities.getOrDefault(id, queueCapacity);
+    }
+
+    /**
+     * Gets what to do when the inbound queue of a message ID is full
+     *
+     * @param id message id
+     * @return overflow policy of the inbound queue of the id
+     */
+    public OverflowPolicy getOverflowPolicy(String id) {
+        return overflowPolicies.getOrDefault(id, overflowPolicy);
+    }
+
+    public static class Builder {
+        private Transport transport = Transport.SOCKET;
+
+        private int bufferCount = DEFAULT_BUFFER_COUNT;
+
+        private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+        private boolean coalesce = false;
+
+        private boolean binary = false;
+
+        private int receiveQueueCapacity = DEFAULT_RECEIVE_QUEUE_CAPACITY;
+
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+
+        private final Map<String, Integer> queueCapacities = new HashMap<>();
+
+        private final Map<String, OverflowPolicy> overflowPolicies = new HashMap<>();
+
+        public Builder() {
+            // Searches are turned away early so the requester can try other nodes;
+            // only recent pulses matter for health measures
+            setQueue(SearchRequest.ID, 512, OverflowPolicy.REJECT);
+            setQueue(HeartbeatPulse.ID, 64, OverflowPolicy.DROP_OLDEST);
+        }
+
+        public Builder setTransport(Transport transport) {
+            this.transport = transport;
+            return this;
+        }
+
+        public Builder setBufferCount(int bufferCount) {
+            this.bufferCount = bufferCount;
+            return this;
+        }
+
+        public Builder setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        public Builder setCoalesce(boolean coalesce) {
+            this.coalesce = coalesce;
+            return this;
+        }
+
+        public Builder setBinary(boolean binary) {
+            this.binary = binary;
+            return this;
+        }
+
+        public Builder setReceiveQueueCapacity(int receiveQueueCapacity) {
+            this.receiveQueueCapacity = receiveQueueCapacity;
+            return this;
+        }
+
+        public Builder setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * Sets inbound queue of a message ID
+         *
+         * @param id       message id
+         * @param capacity max number of queued packets
+         * @param policy   overflow policy, or null to use the default policy
+         * @return this builder
+         */
+        public Builder setQueue(String id, int capacity, OverflowPolicy policy) {
+            this.queueCapacities.put(id, capacity);
+            if (policy != null)
+                this.overflowPolicies.put(id, policy);
+            else
+                this.overflowPolicies.remove(id);
+            return this;
+        }
+
+        public TransportConfig build() {
+            return new TransportConfig(this);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package lk.uomcse.fs.utils;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A bounded pool of reusable direct byte buffers.
+ * Buffers are allocated on demand up to {@code capacity} buffers; acquiring more blocks until a buffer is released.
+ */
+public class BufferPool {
+    private final BlockingQueue<ByteBuffer> buffers;
+
+    // Buffers that can still be handed out
+    private final Semaphore available;
+
+    private final int bufferSize;
+
+    /**
+     * Creates a buffer pool
+     *
+     * @param capacity   max number of buffers of the pool
+     * @param bufferSize size of a single buffer in bytes
+     */
+    public BufferPool(int capacity, int bufferSize) {
+        this.buffers = new ArrayBlockingQueue<>(capacity);
+        this.available = new Semaphore(capacity);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Takes a cleared buffer from the pool or allocates one if the pool is empty. Blocks while all buffers are in use.
+     *
+     * @return a cleared direct buffer
+     * @throws InterruptedException if interrupted while waiting for a buffer
+     */
+    public ByteBuffer acquire() throws InterruptedException {
+        available.acquire();
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null)
+            return ByteBuffer.allocateDirect(bufferSize);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Each acquired buffer must be released exactly once.
+     *
+     * @param buffer a buffer obtained from {@link #acquire()}
+     */
+    public void release(ByteBuffer buffer) {
+        buffers.offer(buffer);
+        available.release();
+    }
+
+    /**
+     * Gets size of buffers of this pool
+     *
+     * @return buffer size in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -3,8 +3,11 @@ package lk.uomcse.fs.utils;
 import lk.uomcse.fs.FalconFS;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
 import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
 import java.net.SocketException;
+import java.nio.channels.DatagramChannel;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -13,6 +16,8 @@ public class DatagramSocketUtils {
 
     private static final ConcurrentMap<Integer, DatagramSocket> sockets = new ConcurrentHashMap<>();
 
+    private static final ConcurrentMap<Integer, DatagramChannel> channels = new ConcurrentHashMap<>();
+
     public static synchronized DatagramSocket getSocket(int port) {
         if (!sockets.containsKey(port)) {
             DatagramSocket socket = null;
@@ -27,5 +32,20 @@ public class DatagramSocketUtils {
         }
         return sockets.get(port);
     }
-}
 
+    public static synchronized DatagramChannel getChannel(int port) {
+        if (!channels.containsKey(port)) {
+            DatagramChannel channel;
+            try {
+                channel = DatagramChannel.open();
+                channel.bind(new InetSocketAddress(port));
+            } catch (IOException e) {
+                // TODO: Create custom exception
+                throw new RuntimeException("There is an error creating or accessing a Channel.", e);
+            }
+            LOGGER.debug(String.format("Channel with port %s created.", port));
+            channels.put(port, channel);
+        }
+        return channels.get(port);
+    }
+}
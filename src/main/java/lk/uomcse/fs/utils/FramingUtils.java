@@ -0,0 +1,116 @@
+package lk.uomcse.fs.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers for messages framed by the protocol length prefix ({@code length ID ...}),
+ * where length is a 4 digit count of bytes of the whole message including the prefix.
+ */
+public class FramingUtils {
+    public static final int LENGTH_DIGITS = 4;
+
+    /**
+     * Reads the length prefix of a message without moving the buffer position
+     *
+     * @param buf   buffer containing the message
+     * @param index absolute index of the first byte of the message
+     * @return declared length of the message or -1 if there is no valid length prefix at index
+     */
+    public static int readLength(ByteBuffer buf, int index) {
+        if (buf.limit() - index < LENGTH_DIGITS + 1 || buf.get(index + LENGTH_DIGITS) != ' ')
+            return -1;
+        int length = 0;
+        for (int i = index; i < index + LENGTH_DIGITS; i++) {
+            byte b = buf.get(i);
+            if (b < '0' || b > '9')
+                return -1;
+            length = length * 10 + (b - '0');
+        }
+        return length > LENGTH_DIGITS ? length : -1;
+    }
+
+    /**
+     * Counts messages packed back to back in the remaining content of the buffer
+     *
+     * @param buf buffer of received content
+     * @return number of messages, or 1 if the content is not entirely made of valid frames
+     */
+    public static int countFrames(ByteBuffer buf) {
+        int index = buf.position();
+        int count = 0;
+        while (index < buf.limit()) {
+            int length = readLength(buf, index);
+            if (length < 0 || index + length > buf.limit())
+                return 1;
+            index += length;
+            count++;
+        }
+        return count > 0 ? count : 1;
+    }
+
+    /**
+     * Whether the content is exactly one message with a valid length prefix
+     *
+     * @param data   content
+     * @param offset offset of the content
+     * @param length length of the content
+     * @return whether the content can be packed with other messages
+     */
+    public static boolean isSingleFrame(byte[] data, int offset, int length) {
+        if (length < LENGTH_DIGITS + 1 || data[offset + LENGTH_DIGITS] != ' ')
+            return false;
+        int declared = 0;
+        for (int i = offset; i < offset + LENGTH_DIGITS; i++) {
+            if (data[i] < '0' || data[i] > '9')
+                return false;
+            declared = declared * 10 + (data[i] - '0');
+        }
+        return declared == length;
+    }
+
+    /**
+     * Finds the start of the message ID, i.e. the second space separated token of the message
+     *
+     * @param buf content of the message from position to limit
+     * @return absolute index of the first byte of the ID
+     */
+    public static int idStart(ByteBuffer buf) {
+        int index = buf.position();
+        while (index < buf.limit() && buf.get(index) != ' ')
+            index++;
+        return index + 1;
+    }
+
+    /**
+     * Finds the end of the token starting at the index
+     *
+     * @param buf   content of the message
+     * @param start absolute index of the first byte of the token
+     * @return absolute index after the last byte of the token
+     */
+    public static int tokenEnd(ByteBuffer buf, int start) {
+        int index = start;
+        while (index < buf.limit() && buf.get(index) != ' ')
+            index++;
+        return index;
+    }
+
+    /**
+     * Compares a token of the message with given bytes
+     *
+     * @param token expected token in ASCII
+     * @param buf   content of the message
+     * @param start absolute index of the first byte of the token
+     * @param end   absolute index after the last byte of the token
+     * @return whether the token equals the expected one
+     */
+    public static boolean tokenEquals(byte[] token, ByteBuffer buf, int start, int end) {
+        if (token.length != end - start)
+            return false;
+        for (int i = 0; i < token.length; i++) {
+            if (token[i] != buf.get(start + i))
+                return false;
+        }
+        return true;
+    }
+}
@@ -45,6 +45,7 @@ public class MainUI {
     private QueryService queryService;
     private java.util.List<String> filenames;
     private Node me;
+    private ResultTableModel resultTableModel;
 
     public MainUI(Node me, java.util.List<Node> neighbors, QueryService queryService, java.util.List<String> filenames) {
         this.me = me;
@@ -72,7 +73,7 @@ public class MainUI {
     }
 
     private void setupThreadComponents() {
-        final ResultTableModel resultTableModel = new ResultTableModel(queryService);
+        resultTableModel = new ResultTableModel();
         tblResults.setModel(resultTableModel);
 
         final NeighborTableModel neighborTableModel = new NeighborTableModel(neighbors);
@@ -81,7 +82,6 @@ public class MainUI {
         new Thread(() -> {
             boolean isActive = true;
             while (isActive) {
-                resultTableModel.fireTableDataChanged();
                 neighborTableModel.fireTableDataChanged();
                 try {
                     Thread.sleep(100);
@@ -119,7 +119,8 @@ public class MainUI {
             if (txtSearch.getText().isEmpty()) {
                 JOptionPane.showMessageDialog(frame, "Search string is empty!", "FalconFS", JOptionPane.ERROR_MESSAGE);
             } else {
-                this.queryService.search(this.txtSearch.getText());
+                // Results are pushed to the table as they arrive
+                resultTableModel.setQuery(this.queryService.search(this.txtSearch.getText()));
             }
 
         });
@@ -1,24 +1,52 @@
 package lk.uomcse.fs.view;
 
-import lk.uomcse.fs.entity.Node;
-import lk.uomcse.fs.model.QueryService;
+import lk.uomcse.fs.messages.SearchResponse;
+import lk.uomcse.fs.model.QueryHandle;
+import lk.uomcse.fs.model.QueryListener;
 
+import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentMap;
 
 /**
+ * Shows results of a search as they arrive. Rows are changed on the event dispatch thread only.
+ *
  * @author Dulanjaya
  * @since 10/25/2017
  */
-public class ResultTableModel extends DefaultTableModel {
-    private QueryService queryService;
+public class ResultTableModel extends DefaultTableModel implements QueryListener {
+    private List<SearchResponse> rows;
 
-    public ResultTableModel(QueryService queryService) {
-        this.queryService = queryService;
+    private QueryHandle query;
+
+    public ResultTableModel() {
+        this.rows = new ArrayList<>();
+    }
+
+    /**
+     * Shows results of given search instead of the current one. Must be called on the event dispatch thread.
+     *
+     * @param query search to show
+     */
+    public void setQuery(QueryHandle query) {
+        if (this.query != null)
+            this.query.unsubscribe(this);
+        this.query = query;
+        this.rows.clear();
+        fireTableDataChanged();
+        query.subscribe(this);
+    }
+
+    @Override
+    public void onResponse(QueryHandle query, SearchResponse response) {
+        SwingUtilities.invokeLater(() -> {
+            // Ignore responses queued before the search changed
+            if (query != this.query)
+                return;
+            rows.add(response);
+            fireTableRowsInserted(rows.size() - 1, rows.size() - 1);
+        });
     }
 
     @Override
@@ -33,24 +61,20 @@ public class ResultTableModel extends DefaultTableModel {
 
     @Override
     public int getRowCount() {
-        int length = 0;
-        if (queryService != null) {
-            length = queryService.getSearchResults().size();
-        }
-        return length;
+        // Called by the super constructor before rows are initialized
+        return rows == null ? 0 : rows.size();
     }
 
     @Override
     public Object getValueAt(int row, int column) {
-        ArrayList<Node> keys = new ArrayList<>(queryService.getSearchResults().keySet());
-        Map<Node, List<String>> map = queryService.getSearchResults();
+        SearchResponse response = rows.get(row);
         switch (column) {
             case 0:
-                return keys.get(row).getIp();
+                return response.getNode().getIp();
             case 1:
-                return keys.get(row).getPort();
+                return response.getNode().getPort();
             case 2:
-                return String.join(",", map.get(keys.get(row)));
+                return String.join(",", response.getFilenames());
             default:
                 return null;
         }
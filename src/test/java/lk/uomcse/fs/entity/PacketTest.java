@@ -0,0 +1,91 @@
+package lk.uomcse.fs.entity;
+
+import lk.uomcse.fs.utils.BufferPool;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PacketTest {
+
+    private final InetSocketAddress source = new InetSocketAddress("127.0.0.1", 5555);
+
+    private Packet packetOf(String content, BufferPool pool) throws InterruptedException {
+        ByteBuffer buf = pool == null ? ByteBuffer.allocate(256) : pool.acquire();
+        buf.put(content.getBytes(StandardCharsets.UTF_8));
+        buf.flip();
+        return new Packet(buf, source, pool);
+    }
+
+    @Test
+    public void splitSingleMessage() throws Exception {
+        Packet packet = packetOf("0013 JOINOK 0", null);
+        List<Packet> packets = packet.split();
+        assertEquals(1, packets.size());
+        assertSame(packet, packets.get(0));
+    }
+
+    @Test
+    public void splitPackedMessages() throws Exception {
+        Packet packet = packetOf("0012 HBPULSE0013 JOINOK 0", null);
+        List<Packet> packets = packet.split();
+        assertEquals(2, packets.size());
+        assertEquals("0012 HBPULSE", packets.get(0).getMessage());
+        assertEquals("0013 JOINOK 0", packets.get(1).getMessage());
+        assertEquals(source, packets.get(1).getSourceAddress());
+    }
+
+    @Test
+    public void splitInvalidFramesKeepsWholeMessage() throws Exception {
+        Packet packet = packetOf("0012 HBPULSE trailing", null);
+        assertEquals(1, packet.split().size());
+        assertEquals("0012 HBPULSE trailing", packet.getMessage());
+    }
+
+    @Test
+    public void releaseReturnsBufferAfterAllSplitPackets() throws Exception {
+        BufferPool pool = new BufferPool(2, 256);
+        Packet packet = packetOf("0012 HBPULSE0012 HBPULSE", pool);
+        ByteBuffer buffer = packet.getData();
+        List<Packet> packets = packet.split();
+        packets.get(0).release();
+        ByteBuffer other = pool.acquire();
+        assertNotSame(buffer, other);
+        packets.get(1).release();
+        assertSame(buffer, pool.acquire());
+        pool.release(other);
+    }
+
+    @Test
+    public void detachReleasesPooledBuffer() throws Exception {
+        BufferPool pool = new BufferPool(1, 256);
+        Packet packet = packetOf("0012 HBPULSE", pool);
+        ByteBuffer buffer = packet.getData();
+        packet.detach();
+        assertEquals("0012 HBPULSE", packet.getMessage());
+        assertSame(buffer, pool.acquire());
+        packet.release();
+    }
+
+    @Test
+    public void poolBlocksWhenAllBuffersInUse() throws Exception {
+        BufferPool pool = new BufferPool(1, 256);
+        ByteBuffer buffer = pool.acquire();
+        Thread waiter = new Thread(() -> {
+            try {
+                pool.release(pool.acquire());
+            } catch (InterruptedException ignored) {
+            }
+        });
+        waiter.start();
+        waiter.join(200);
+        assertTrue(waiter.isAlive());
+        pool.release(buffer);
+        waiter.join(1000);
+        assertFalse(waiter.isAlive());
+    }
+}
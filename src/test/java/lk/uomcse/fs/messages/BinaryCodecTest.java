@@ -0,0 +1,93 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.entity.Node;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class BinaryCodecTest {
+
+    private static String roundTrip(IMessage message) {
+        byte[] binary = message.encodeBinary();
+        assertNotNull(binary);
+        assertTrue(BinaryCodec.isBinary(ByteBuffer.wrap(binary)));
+        return new String(BinaryCodec.decode(ByteBuffer.wrap(binary)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void messagesRoundTrip() throws Exception {
+        Node node = new Node("10.0.0.1", 5001);
+        VisitedSet visited = new VisitedSet();
+        visited.add(node);
+        IMessage[] messages = {
+                new SearchRequest("12", node, "harry potter", 3),
+                new SearchRequest("12", node, "harry potter", 3, visited),
+                new SearchResponse("12", 2, new Node("192.168.1.20", 65535), 300, Arrays.asList("harry_potter", "glee")),
+                new HeartbeatPulse(),
+                new WalkRequest("12", node, "glee", 4),
+                new SearchCancel("12", node, 2),
+                new WalkCheck("12", node),
+                new WalkCheckResponse("12", false)
+        };
+        for (IMessage message : messages)
+            assertEquals(message.toString(), roundTrip(message));
+    }
+
+    @Test
+    public void binaryIsSmaller() throws Exception {
+        SearchResponse response = new SearchResponse("12", 2, new Node("192.168.1.20", 5001), 3,
+                Arrays.asList("harry_potter", "glee"));
+        assertTrue(response.encodeBinary().length < response.encode().length);
+        assertEquals(SearchResponse.ID, BinaryCodec.idOf(ByteBuffer.wrap(response.encodeBinary())));
+    }
+
+    @Test
+    public void textFallback() throws Exception {
+        // Host names can not be packed and join messages are exchanged before the encoding is agreed
+        assertNull(new SearchRequest("1", new Node("localhost", 5001), "glee", 0).encodeBinary());
+        assertNull(new JoinRequest(new Node("10.0.0.1", 5001)).encodeBinary());
+        assertNull(new BinaryRequest().encodeBinary());
+        assertFalse(BinaryCodec.isBinary(ByteBuffer.wrap(new HeartbeatPulse().encode())));
+    }
+
+    @Test
+    public void viewsReadBinaryFields() throws Exception {
+        Node origin = new Node("10.0.0.1", 5001);
+        SearchRequest request = new SearchRequest("7", origin, "harry potter", 2);
+        SearchRequestView view = new SearchRequestView();
+        assertTrue(view.wrap(ByteBuffer.wrap(request.encodeBinary())));
+        assertEquals("7", view.getQueryId());
+        assertEquals(origin, view.getNode());
+        assertEquals("harry potter", view.getFilename());
+        assertEquals(2, view.getHops());
+        assertNull(view.getVisited());
+        VisitedSet visited = new VisitedSet();
+        visited.add(origin);
+        assertEquals(new SearchRequest("7", origin, "harry potter", 3, visited).toString(),
+                view.forward(visited).toString());
+
+        SearchResponseView response = new SearchResponseView();
+        assertTrue(response.wrap(ByteBuffer.wrap(new SearchResponse("7", 2, origin, 1,
+                Arrays.asList("glee", "happy_feet")).encodeBinary())));
+        assertTrue(response.isQueryId("7"));
+        assertTrue(response.isSuccess());
+        assertEquals(origin, response.getNode());
+        assertEquals(Arrays.asList("glee", "happy_feet"), response.getFilenames());
+
+        assertTrue(new HeartbeatPulseView().wrap(ByteBuffer.wrap(new HeartbeatPulse().encodeBinary())));
+        assertFalse(new SearchRequestView().wrap(ByteBuffer.wrap(new HeartbeatPulse().encodeBinary())));
+    }
+
+    @Test
+    public void joinKeepsBaselineFormat() throws Exception {
+        // Older nodes accept join messages of exactly these token counts
+        assertEquals(4, new JoinRequest(new Node("10.0.0.1", 5001)).toString().split(" ").length);
+        assertEquals("0013 JOINOK 0", new JoinResponse(true).toString());
+        assertTrue(BinaryResponse.parse(new BinaryResponse(true).toString()).isSuccess());
+        assertFalse(BinaryResponse.parse(new BinaryResponse(false).toString()).isSuccess());
+    }
+}
@@ -0,0 +1,98 @@
+package lk.uomcse.fs.messages;
+
+import lk.uomcse.fs.entity.Node;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MessageViewTest {
+
+    private static ByteBuffer bufferOf(IMessage message) {
+        return ByteBuffer.wrap(message.encode());
+    }
+
+    @Test
+    public void searchRequestFields() throws Exception {
+        SearchRequest request = new SearchRequest("12", new Node("10.0.0.1", 5001), "harry potter", 3);
+        SearchRequestView view = new SearchRequestView();
+        assertTrue(view.wrap(bufferOf(request)));
+        assertEquals("12", view.getQueryId());
+        assertEquals("10.0.0.1", view.getIp());
+        assertEquals(5001, view.getPort());
+        assertEquals("harry potter", view.getFilename());
+        assertEquals(3, view.getHops());
+    }
+
+    @Test
+    public void searchRequestForwardIncrementsHops() throws Exception {
+        SearchRequest request = new SearchRequest("7", new Node("10.0.0.1", 5001), "glee", 9);
+        SearchRequestView view = new SearchRequestView();
+        view.wrap(bufferOf(request));
+        request.incrementHops();
+        assertEquals(request.toString(), view.forward().toString());
+    }
+
+    @Test
+    public void searchRequestVisitedSet() throws Exception {
+        Node origin = new Node("10.0.0.1", 5001);
+        VisitedSet visited = new VisitedSet();
+        visited.add(origin);
+        SearchRequest request = new SearchRequest("7", origin, "harry potter", 2, visited);
+        SearchRequestView view = new SearchRequestView();
+        assertTrue(view.wrap(bufferOf(request)));
+        assertEquals("harry potter", view.getFilename());
+        assertEquals(2, view.getHops());
+        assertTrue(view.getVisited().mightContain(origin));
+        assertFalse(view.getVisited().mightContain(new Node("10.0.0.2", 5002)));
+        assertEquals(visited.toString(), SearchRequest.parse(request.toString()).getVisited().toString());
+
+        VisitedSet next = view.getVisited();
+        next.add(new Node("10.0.0.2", 5002));
+        SearchRequest forwarded = new SearchRequest("7", origin, "harry potter", 3, next);
+        assertEquals(forwarded.toString(), view.forward(next).toString());
+        // Requests without a visited set get one when forwarded
+        assertTrue(view.wrap(bufferOf(new SearchRequest("7", origin, "harry potter", 2))));
+        assertNull(view.getVisited());
+        assertEquals(forwarded.toString(), view.forward(next).toString());
+    }
+
+    @Test
+    public void visitedSetKeepsBaselineFieldLayout() throws Exception {
+        VisitedSet visited = new VisitedSet();
+        visited.add(new Node("10.0.0.2", 5002));
+        String frame = new SearchRequest("7", new Node("10.0.0.1", 5001), "glee", 3, visited).toString();
+        // Nodes without visited sets read filename and hops at fixed positions
+        String[] response = frame.split(" ");
+        assertEquals("SER", response[1]);
+        assertEquals("glee", response[5]);
+        assertEquals(3, Integer.parseInt(response[6]));
+
+        SearchRequestView view = new SearchRequestView();
+        assertTrue(view.wrap(ByteBuffer.wrap(frame.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(frame.replace(" 3 ", " 4 "), view.forward().toString());
+    }
+
+    @Test
+    public void searchResponseFields() throws Exception {
+        SearchResponse response = new SearchResponse("4", 2, new Node("10.0.0.2", 5002), 1, Arrays.asList("glee", "happy_feet"));
+        SearchResponseView view = new SearchResponseView();
+        assertTrue(view.wrap(bufferOf(response)));
+        assertTrue(view.isQueryId("4"));
+        assertFalse(view.isQueryId("40"));
+        assertTrue(view.isSuccess());
+        assertEquals(new Node("10.0.0.2", 5002), view.getNode());
+        assertEquals(1, view.getHops());
+        assertEquals(Arrays.asList("glee", "happy_feet"), view.getFilenames());
+    }
+
+    @Test
+    public void rejectsOtherMessages() throws Exception {
+        assertFalse(new SearchRequestView().wrap(bufferOf(new HeartbeatPulse())));
+        assertFalse(new HeartbeatPulseView().wrap(ByteBuffer.wrap("0013 JOINOK 0".getBytes(StandardCharsets.US_ASCII))));
+        assertTrue(new HeartbeatPulseView().wrap(bufferOf(new HeartbeatPulse())));
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -78,5 +79,91 @@ public class CacheServiceTest {
         assertArrayEquals(results2.toArray(),expected2.toArray());
     }
 
+    @Test
+    public void concurrentUpdates() throws Exception {
+        CacheService cache = new CacheService(10, 3);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            Node node = new Node("10.0.0." + i, 5001);
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++)
+                    cache.update(node, Arrays.asList("Windows 8", "Arrow"));
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        List<Node> nodes = cache.getNodes("windows");
+        assertEquals(3, nodes.size());
+        assertEquals(3, new HashSet<>(nodes).size());
+        // Oldest node is dropped when full
+        Node node = new Node("10.0.1.1", 5001);
+        cache.update(node, Arrays.asList("Windows"));
+        assertEquals(Arrays.asList(nodes.get(1), nodes.get(2), node), cache.getNodes("windows"));
+    }
+
+    @Test
+    public void searchRanksPartialMatches() throws Exception {
+        Node n0 = new Node(ipAddresses[0], ports[0]);
+        Node n1 = new Node(ipAddresses[1], ports[1]);
+        cacheService.update(n0, Arrays.asList("call_of_duty"));
+        cacheService.update(n1, Arrays.asList("duty_calls"));
+
+        assertEquals(Arrays.asList(n0), cacheService.search("Call of Duty"));
+        // No node has all keywords
+        assertEquals(Arrays.asList(n0, n1), cacheService.search("duty calls of"));
+        assertEquals(Arrays.asList(n1, n0), cacheService.search("duty calls halo"));
+        assertNull(cacheService.search("halo"));
+    }
+
+    @Test
+    public void removeAndReplaceNodes() throws Exception {
+        Node n0 = new Node(ipAddresses[0], ports[0]);
+        Node n1 = new Node(ipAddresses[1], ports[1]);
+        cacheService.update(n0, Arrays.asList(fileNames[1]));
+        cacheService.update(n1, Arrays.asList(fileNames[1]));
+
+        cacheService.remove(n0);
+        assertEquals(Arrays.asList(n1), cacheService.search("Windows 8"));
+        cacheService.remove(n1);
+        assertNull(cacheService.search("Windows 8"));
+        assertFalse(cacheService.getCacheTable().containsKey("windows"));
+
+        // A fresher response replaces keywords of the node
+        cacheService.update(n0, Arrays.asList("Windows 8", "Arrow"));
+        cacheService.update(n0, Arrays.asList("Windows 10"));
+        assertEquals(Arrays.asList(n0), cacheService.search("Windows"));
+        assertNull(cacheService.search("Arrow"));
+    }
+
+    @Test
+    public void reclaimsIdsOfNodesNoLongerCached() throws Exception {
+        Node n0 = new Node(ipAddresses[0], ports[0]);
+        Node n1 = new Node(ipAddresses[1], ports[1]);
+        Node n2 = new Node(ipAddresses[2], ports[2]);
+        cacheService.update(n0, Arrays.asList("Arrow"));
+        cacheService.update(n1, Arrays.asList("Arrow"));
+        cacheService.remove(n0);
+        cacheService.remove(n1);
+        assertEquals(0, cacheService.getNodeCount());
+
+        // Dropped from a full keyword
+        CacheService cache = new CacheService(10, 1);
+        cache.update(n0, Arrays.asList("Arrow"));
+        cache.update(n1, Arrays.asList("Arrow"));
+        assertEquals(1, cache.getNodeCount());
+        assertEquals(Arrays.asList(n1), cache.search("Arrow"));
+
+        // Evicted with the keyword
+        cache = new CacheService(1, 3);
+        cache.update(n0, Arrays.asList("Arrow"));
+        cache.update(n1, Arrays.asList("Glee"));
+        cache.update(n2, Arrays.asList("Glee"));
+        assertEquals(2, cache.getNodeCount());
+        // Id of n0 is reused
+        assertEquals(Arrays.asList(n1, n2), cache.getNodes("glee"));
+        assertEquals(2, cache.search("Glee").size());
+    }
+
 
 }
\ No newline at end of file
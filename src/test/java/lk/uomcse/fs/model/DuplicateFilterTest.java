@@ -0,0 +1,29 @@
+package lk.uomcse.fs.model;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DuplicateFilterTest {
+
+    @Test
+    public void duplicatesWithinWindow() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(60, 6, TimeUnit.SECONDS);
+        assertTrue(filter.add("10.0.0.1:5001/1", 0));
+        assertFalse(filter.add("10.0.0.1:5001/1", 1000));
+        assertTrue(filter.add("10.0.0.1:5001/2", 1000));
+        assertTrue(filter.add("10.0.0.2:5001/1", 1000));
+        // Still remembered by an older slice
+        assertFalse(filter.add("10.0.0.1:5001/1", 45000));
+    }
+
+    @Test
+    public void expiresAfterWindow() throws Exception {
+        DuplicateFilter filter = new DuplicateFilter(60, 6, TimeUnit.SECONDS);
+        assertTrue(filter.add("10.0.0.1:5001/1", 0));
+        assertTrue(filter.add("10.0.0.1:5001/1", 70000));
+        assertFalse(filter.add("10.0.0.1:5001/1", 75000));
+    }
+}
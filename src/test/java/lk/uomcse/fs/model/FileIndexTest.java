@@ -0,0 +1,86 @@
+package lk.uomcse.fs.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileIndexTest {
+
+    @Test
+    public void searchMatchesAllKeywords() throws Exception {
+        FileIndex index = new FileIndex();
+        index.addAll(Arrays.asList("harry potter", "lord of the rings", "the hobbit", "harry  met sally"));
+        assertEquals(Arrays.asList("harry potter", "harry  met sally"), index.search("harry"));
+        assertEquals(Collections.singletonList("harry potter"), index.search("potter  harry"));
+        assertEquals(Arrays.asList("lord of the rings", "the hobbit"), index.search("the"));
+        assertTrue(index.search("harry hobbit").isEmpty());
+        assertTrue(index.search("harr").isEmpty());
+        assertTrue(index.search(" ").isEmpty());
+    }
+
+    @Test
+    public void indexIsUpdatedOnAdd() throws Exception {
+        FileIndex index = new FileIndex();
+        assertTrue(index.search("glee").isEmpty());
+        index.add("glee");
+        assertTrue(index.contains("glee"));
+        assertFalse(index.contains("gle"));
+        assertFalse(index.contains("glee glee"));
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList("glee"), index.search("glee"));
+    }
+
+    @Test
+    public void shardedSearchKeepsOrder() throws Exception {
+        FileIndex index = new FileIndex(3);
+        for (int i = 0; i < 20000; i++)
+            index.add(String.format("file %d part%d", i, i % 7));
+        List<String> found = index.search("part3 file");
+        assertEquals(20000 / 7, found.size());
+        for (int i = 0; i < found.size(); i++)
+            assertEquals(String.format("file %d part3", 3 + i * 7), found.get(i));
+    }
+
+    @Test
+    public void storeKeepsUnicodeFilenames() throws Exception {
+        FilenameStore store = new FilenameStore();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < (1 << 20); i++)
+            large.append("ab");
+        assertEquals(0, store.add("caf\u00e9 noir"));
+        assertEquals(1, store.add(large.toString()));
+        assertEquals(2, store.add(""));
+        assertEquals("caf\u00e9 noir", store.get(0));
+        assertEquals(large.toString(), store.get(1));
+        assertEquals("", store.get(2));
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    public void prefixAndFuzzyModes() throws Exception {
+        FileIndex index = new FileIndex(2);
+        index.addAll(Arrays.asList("harry potter", "hairy bikers", "harvest moon", "glee", "super mario"));
+        assertEquals(Arrays.asList("harry potter", "harvest moon"), index.search("har", MatchMode.PREFIX));
+        assertEquals(Collections.singletonList("harry potter"), index.search("har* potter"));
+        assertEquals(Arrays.asList("harry potter", "hairy bikers"), index.search("hary", MatchMode.FUZZY));
+        assertEquals(Collections.singletonList("harry potter"), index.search("hary~ poter", MatchMode.FUZZY));
+        assertEquals(Collections.singletonList("super mario"), index.search("supr~ mario"));
+        assertTrue(index.search("hary").isEmpty());
+        assertTrue(index.search("xyz", MatchMode.FUZZY).isEmpty());
+        assertEquals("harr* potter*", MatchMode.PREFIX.apply("harr~  potter"));
+    }
+
+    @Test
+    public void fuzzyModeMatchesShortKeywords() throws Exception {
+        FileIndex index = new FileIndex(2);
+        index.addAll(Arrays.asList("ab testing", "xb series", "abc news", "b movies"));
+        assertEquals(Arrays.asList("ab testing", "xb series", "abc news", "b movies"),
+                index.search("ab", MatchMode.FUZZY));
+        assertEquals(Collections.singletonList("xb series"), index.search("xb~ series"));
+        assertTrue(index.search("xyz", MatchMode.FUZZY).isEmpty());
+    }
+}
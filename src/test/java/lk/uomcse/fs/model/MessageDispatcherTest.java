@@ -0,0 +1,54 @@
+package lk.uomcse.fs.model;
+
+import lk.uomcse.fs.entity.Packet;
+import lk.uomcse.fs.messages.WalkCheckResponse;
+import lk.uomcse.fs.udp.TransportConfig;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class MessageDispatcherTest {
+
+    private final InetSocketAddress peer = new InetSocketAddress("127.0.0.1", 5555);
+
+    private Packet packetOf(WalkCheckResponse response) {
+        return new Packet(ByteBuffer.wrap(response.encode()), peer, null);
+    }
+
+    private static boolean isReplyOf(Packet packet, String queryId) {
+        return WalkCheckResponse.parse(packet.getMessage()).getQueryId().equals(queryId);
+    }
+
+    @Test
+    public void filteredExpectationsTakeTheirOwnReplies() throws Exception {
+        MessageDispatcher dispatcher = new MessageDispatcher(TransportConfig.defaults(), WalkCheckResponse.ID);
+        CompletableFuture<Packet> first = dispatcher.expect(WalkCheckResponse.ID, peer, p -> isReplyOf(p, "1"));
+        CompletableFuture<Packet> second = dispatcher.expect(WalkCheckResponse.ID, peer, p -> isReplyOf(p, "2"));
+
+        // Reply of the later request arrives first
+        assertTrue(dispatcher.dispatch(packetOf(new WalkCheckResponse("2", false))));
+        assertFalse(first.isDone());
+        assertFalse(WalkCheckResponse.parse(second.get().getMessage()).isSuccess());
+
+        assertTrue(dispatcher.dispatch(packetOf(new WalkCheckResponse("1", true))));
+        assertTrue(WalkCheckResponse.parse(first.get().getMessage()).isSuccess());
+
+        // A late reply nobody expects is queued instead
+        dispatcher.dispatch(packetOf(new WalkCheckResponse("1", true)));
+        assertEquals(1, dispatcher.queue(WalkCheckResponse.ID).size());
+    }
+
+    @Test
+    public void queuesIdsFirstSeenInPackets() throws Exception {
+        MessageDispatcher dispatcher = new MessageDispatcher(TransportConfig.defaults());
+        ByteBuffer leave = ByteBuffer.wrap("0025 LEAVE 127.0.0.1 5555".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(dispatcher.dispatch(new Packet(leave, peer, null)));
+        assertTrue(dispatcher.dispatch(new Packet(leave.duplicate(), peer, null)));
+        assertEquals(2, dispatcher.queue("LEAVE").size());
+    }
+}
@@ -0,0 +1,53 @@
+package lk.uomcse.fs.model;
+
+import com.google.common.base.Ticker;
+import lk.uomcse.fs.entity.Node;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ResultCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+
+    @Test
+    public void sharesResultsOfSameKeywords() throws Exception {
+        ResultCache cache = new ResultCache(10, 60, 10, TimeUnit.SECONDS, ticker);
+        Node n0 = new Node("10.0.0.1", 5001);
+        Node n1 = new Node("10.0.0.2", 5001);
+        cache.add("Harry Potter", n0, Collections.singletonList("harry_potter"));
+        cache.add("potter  harry", n1, Arrays.asList("harry_potter", "harry_potter_2"));
+        Map<Node, List<String>> results = cache.get("harry potter");
+        assertEquals(Arrays.asList(n0, n1), Arrays.asList(results.keySet().toArray()));
+        assertEquals(Arrays.asList("harry_potter", "harry_potter_2"), results.get(n1));
+        assertNull(cache.get("harry"));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertNull(cache.get("harry potter"));
+    }
+
+    @Test
+    public void missesExpireSooner() throws Exception {
+        ResultCache cache = new ResultCache(10, 60, 10, TimeUnit.SECONDS, ticker);
+        cache.addMiss("glee");
+        assertTrue(cache.get("glee").isEmpty());
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertNull(cache.get("glee"));
+        // Files found later replace the miss
+        cache.addMiss("glee");
+        cache.add("glee", new Node("10.0.0.1", 5001), Collections.singletonList("glee"));
+        assertEquals(1, cache.get("glee").size());
+    }
+}
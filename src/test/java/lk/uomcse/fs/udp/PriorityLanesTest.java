@@ -0,0 +1,34 @@
+package lk.uomcse.fs.udp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PriorityLanesTest {
+
+    @Test
+    public void takeServesControlFirst() throws Exception {
+        PriorityLanes<String> lanes = new PriorityLanes<>(10);
+        lanes.offer("SER 1", Lane.BULK);
+        lanes.offer("SER 2", Lane.BULK);
+        lanes.offer("HBPULSE", Lane.CONTROL);
+        assertEquals("HBPULSE", lanes.take());
+        assertEquals("SER 1", lanes.take());
+        assertEquals("SER 2", lanes.take());
+    }
+
+    @Test
+    public void fullBulkLaneDoesNotBlockControl() throws Exception {
+        PriorityLanes<String> lanes = new PriorityLanes<>(1);
+        assertTrue(lanes.offer("SER 1", Lane.BULK));
+        assertFalse(lanes.offer("SER 2", Lane.BULK));
+        assertTrue(lanes.offer("JOIN", Lane.CONTROL));
+        List<String> items = new ArrayList<>();
+        assertEquals(2, lanes.drainTo(items, 5));
+        assertEquals(Arrays.asList("JOIN", "SER 1"), items);
+    }
+}